@@ -0,0 +1,111 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Extraction of an upload's text, as done for every quiz generated from a file. The
+ * fixtures are built once: a 40-page PDF, a DOCX with 400 paragraphs and a 400 KB TXT.
+ * With {@code cached=false} the text cache can't hold anything, so every call parses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DocumentExtractionBenchmark {
+
+    private static final String PARAGRAPH = "Photosynthesis converts light energy into chemical energy. "
+            + "Chlorophyll absorbs mostly blue and red light, and the Calvin cycle fixes carbon dioxide into sugars.";
+
+    @Param({"false", "true"})
+    private boolean cached;
+
+    private DocumentTextExtractor extractor;
+    private MockMultipartFile pdf;
+    private MockMultipartFile docx;
+    private MockMultipartFile txt;
+
+    @Setup
+    public void setUp() throws IOException {
+        extractor = new DocumentTextExtractor(new DocumentTextCache(cached ? 20_000_000 : 0, ""), 200_000, new SimpleMeterRegistry());
+        pdf = new MockMultipartFile("file", "notes.pdf", "application/pdf", pdf(40));
+        docx = new MockMultipartFile("file", "notes.docx",
+                "application/vnd.openxmlformats-officedocument.wordprocessingml.document", docx(400));
+        txt = new MockMultipartFile("file", "notes.txt", "text/plain",
+                (PARAGRAPH + "\n\n").repeat(2_500).getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Benchmark
+    public String extractPdf() throws IOException {
+        return extractor.extract(pdf).text();
+    }
+
+    @Benchmark
+    public String extractDocx() throws IOException {
+        return extractor.extract(docx).text();
+    }
+
+    @Benchmark
+    public String extractTxt() throws IOException {
+        return extractor.extract(txt).text();
+    }
+
+    private static byte[] pdf(int pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (PDDocument document = new PDDocument()) {
+            PDType1Font font = new PDType1Font(Standard14Fonts.FontName.HELVETICA);
+            for (int i = 0; i < pages; i++) {
+                PDPage page = new PDPage();
+                document.addPage(page);
+                try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+                    content.beginText();
+                    content.setFont(font, 10);
+                    content.setLeading(12);
+                    content.newLineAtOffset(40, 750);
+                    for (int line = 0; line < 50; line++) {
+                        content.showText("Page " + i + ", line " + line + ": " + PARAGRAPH.substring(0, 90));
+                        content.newLine();
+                    }
+                    content.endText();
+                }
+            }
+            document.save(out);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] docx(int paragraphs) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (XWPFDocument document = new XWPFDocument()) {
+            for (int i = 0; i < paragraphs; i++) {
+                document.createParagraph().createRun().setText(i + ". " + PARAGRAPH);
+            }
+            document.write(out);
+        }
+        return out.toByteArray();
+    }
+}
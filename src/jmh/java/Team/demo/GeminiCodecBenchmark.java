@@ -0,0 +1,104 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares {@link GeminiCodec} with the string-building / double-readTree path it replaced,
+ * for encoding a prompt and for decoding a fenced quiz response. Run with {@code -prof gc}
+ * (the default in the benchmarks profile) to see the allocation rate per operation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GeminiCodecBenchmark {
+
+    @Param({"10", "50"})
+    private int questionCount;
+
+    private final GeminiCodec codec = new GeminiCodec();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private String prompt;
+    private String responseBody;
+
+    @Setup
+    public void setUp() throws IOException {
+        prompt = "Generate a quiz with exactly " + questionCount + " 'Multiple Choice' questions. The quiz is on the topic of "
+                + "'the \"French\" Revolution'.\nOutput ONLY a strict JSON object (no markdown). ".repeat(5);
+
+        StringBuilder quiz = new StringBuilder("```json\n{\"questions\":[");
+        for (int i = 0; i < questionCount; i++) {
+            if (i > 0) quiz.append(',');
+            quiz.append("{\"question\":\"Which event in year ").append(1789 + i).append(" marked a turning point?\",")
+                    .append("\"options\":[\"The storming of the Bastille\",\"The Tennis Court Oath\",\"The Great Fear\",\"The Flight to Varennes\"],")
+                    .append("\"correctOptionIndex\":").append(i % 4).append(',')
+                    .append("\"explanation\":\"Historians usually point to this event because it changed the balance of power.\"}");
+        }
+        quiz.append("]}\n```");
+        responseBody = objectMapper.writeValueAsString(objectMapper.createObjectNode()
+                .set("candidates", objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                        .set("content", objectMapper.createObjectNode()
+                                .set("parts", objectMapper.createArrayNode().add(objectMapper.createObjectNode()
+                                        .put("text", quiz.toString())))))));
+    }
+
+    @Benchmark
+    public String encodeRequestCodec() {
+        return codec.encodeRequest(prompt);
+    }
+
+    @Benchmark
+    public String encodeRequestLegacy() {
+        String escapedPrompt = prompt.replace("\"", "\\\"").replace("\n", "\\n");
+        return "{ \"contents\": [{ \"parts\": [{ \"text\": \"" + escapedPrompt + "\" }] }] }";
+    }
+
+    @Benchmark
+    public List<Question> decodeResponseCodec() throws IOException {
+        return codec.parseQuestions(codec.responseText(responseBody), "Multiple Choice");
+    }
+
+    // The previous AiQuizService path: readTree, strip fences with replace(), readTree again, copy fields
+    @Benchmark
+    public List<Question> decodeResponseLegacy() throws IOException {
+        JsonNode root = objectMapper.readTree(responseBody);
+        String rawText = root.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
+        String cleanedJsonText = rawText.replace("```json", "").replace("```", "").trim();
+        JsonNode quizJson = objectMapper.readTree(cleanedJsonText);
+        List<Question> questions = new ArrayList<>();
+        for (JsonNode qNode : quizJson.path("questions")) {
+            Question question = new Question();
+            question.setType("Multiple Choice");
+            question.setQuestion(qNode.path("question").asText());
+            question.setExplanation(qNode.path("explanation").asText(null));
+            List<String> options = new ArrayList<>();
+            for (JsonNode opt : qNode.path("options")) {
+                options.add(opt.asText());
+            }
+            question.setOptions(options);
+            question.setCorrectOptionIndex(qNode.path("correctOptionIndex").asInt());
+            questions.add(question);
+        }
+        return questions;
+    }
+}
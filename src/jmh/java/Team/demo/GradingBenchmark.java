@@ -0,0 +1,66 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+import Team.demo.model.QuizResult;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/** The grading loop of a quiz submission, for a half multiple-choice, half fill-in-the-blank quiz. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GradingBenchmark {
+
+    @Param({"10", "50"})
+    private int questionCount;
+
+    private Quiz quiz;
+    private final Map<String, String> parameters = new HashMap<>();
+
+    @Setup
+    public void setUp() {
+        List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < questionCount; i++) {
+            Question question = new Question();
+            question.setExplanation("Because of reason number " + i + ".");
+            if (i % 2 == 0) {
+                question.setType("Multiple Choice");
+                question.setQuestion("Which option is correct for question " + i + "?");
+                question.setOptions(List.of("Option A", "Option B", "Option C", "Option D"));
+                question.setCorrectOptionIndex(i % 4);
+                parameters.put("q" + i, i % 3 == 0 ? "Option A" : "Option B");
+            } else {
+                question.setType("Fill in the Blank");
+                question.setQuestion("Question " + i + " has a ____ in it.");
+                question.setAnswer("blank");
+                parameters.put("q" + i, i % 3 == 0 ? "Blank" : "gap");
+            }
+            questions.add(question);
+        }
+        quiz = new Quiz("Grading", "Easy", "Mixed", questions);
+    }
+
+    @Benchmark
+    public QuizResult grade() {
+        return QuizController.grade(quiz, parameters::get);
+    }
+}
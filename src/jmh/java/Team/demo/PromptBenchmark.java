@@ -0,0 +1,63 @@
+package Team.demo;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building the prompt and request body for one quiz: document context (6000-token budget),
+ * the exclusion list and the JSON encoding. {@code excluded} is the number of previous
+ * questions quoted in the prompt; the default sample is 15, the larger value shows what an
+ * unbounded history would cost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PromptBenchmark {
+
+    @Param({"0", "15", "500"})
+    private int excluded;
+
+    private final GeminiCodec codec = new GeminiCodec();
+    private String documentText;
+    private QuizRequest topicRequest;
+    private List<String> exclusionSample;
+
+    @Setup
+    public void setUp() {
+        documentText = "The \"Treaty of Versailles\" was signed in 1919.\nIt redrew the map of Europe. ".repeat(300);
+        exclusionSample = new ArrayList<>();
+        for (int i = 0; i < excluded; i++) {
+            exclusionSample.add("Which treaty, signed in year " + (1800 + i) + ", ended the war between the two powers?");
+        }
+        topicRequest = new QuizRequest("World War I", "world war i", 10, "Medium", "Multiple Choice",
+                "on the topic of 'World War I'", false, null, exclusionSample, QuestionFingerprintService.SeenQuestions.EMPTY);
+    }
+
+    @Benchmark
+    public String topicPrompt() {
+        return codec.encodeRequest(AiQuizService.buildPrompt(topicRequest));
+    }
+
+    @Benchmark
+    public String documentPrompt() {
+        QuizRequest request = new QuizRequest("Versailles", "versailles", 10, "Medium", "Multiple Choice",
+                AiQuizService.documentContext(documentText), true, "benchmark", exclusionSample, QuestionFingerprintService.SeenQuestions.EMPTY);
+        return codec.encodeRequest(AiQuizService.buildPrompt(request));
+    }
+}
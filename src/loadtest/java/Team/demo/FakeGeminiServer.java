@@ -0,0 +1,231 @@
+package Team.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A local stand-in for the Gemini GenerateContent API. It answers both
+ * {@code :generateContent} and {@code :streamGenerateContent?alt=sse} with a quiz of as
+ * many questions as the prompt asks for, after a latency drawn from a configurable
+ * distribution, and fails a configurable share of calls with 503s, 429s or malformed JSON.
+ */
+public class FakeGeminiServer implements AutoCloseable {
+
+    private static final Pattern COUNT = Pattern.compile("exactly (\\d+)");
+    private static final Pattern TOPIC = Pattern.compile("on the topic of '([^']*)'");
+    private static final String[] SUBJECTS = {
+            "the main principle", "a common misconception", "the historical origin", "a practical application",
+            "the key difference", "the typical failure mode", "the standard definition", "an important exception"
+    };
+
+    /**
+     * @param latency       time until the (first part of the) response is sent
+     * @param errorRate     share of calls answered with 503
+     * @param rateLimitRate share of calls answered with 429
+     * @param malformedRate share of calls whose quiz JSON is cut off halfway
+     */
+    public record Settings(Latency latency, double errorRate, double rateLimitRate, double malformedRate) {}
+
+    /**
+     * A latency distribution in milliseconds, written as {@code fixed:200},
+     * {@code uniform:100:900} or {@code lognormal:800:0.5} (median, sigma).
+     */
+    public record Latency(String kind, double a, double b) {
+
+        public static Latency parse(String spec) {
+            String[] parts = spec.split(":");
+            return switch (parts[0]) {
+                case "fixed" -> new Latency("fixed", Double.parseDouble(parts[1]), 0);
+                case "uniform" -> new Latency("uniform", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                case "lognormal" -> new Latency("lognormal", Double.parseDouble(parts[1]), Double.parseDouble(parts[2]));
+                default -> throw new IllegalArgumentException("Unknown latency distribution: " + spec);
+            };
+        }
+
+        long sampleMillis() {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            return switch (kind) {
+                case "uniform" -> (long) (a + random.nextDouble() * (b - a));
+                case "lognormal" -> (long) (a * Math.exp(b * random.nextGaussian()));
+                default -> (long) a;
+            };
+        }
+
+        @Override
+        public String toString() {
+            return kind + ":" + (long) a + ("fixed".equals(kind) ? "" : ":" + b);
+        }
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Settings settings;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+
+    public FakeGeminiServer(int port, Settings settings) throws IOException {
+        this.settings = settings;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", port), 256);
+        server.createContext("/", this::handle);
+        server.setExecutor(executor);
+    }
+
+    public FakeGeminiServer start() {
+        server.start();
+        return this;
+    }
+
+    /** The URL to use as {@code gemini.api.url}. */
+    public String generateUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta/models/fake-gemini:generateContent";
+    }
+
+    public long getCalls() {
+        return calls.get();
+    }
+
+    public long getFailures() {
+        return failures.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            calls.incrementAndGet();
+            String prompt;
+            try (InputStream body = exchange.getRequestBody()) {
+                prompt = objectMapper.readTree(body).path("contents").path(0).path("parts").path(0).path("text").asText("");
+            }
+            boolean stream = exchange.getRequestURI().getPath().endsWith(":streamGenerateContent");
+            long latency = Math.max(0, settings.latency().sampleMillis());
+
+            double roll = ThreadLocalRandom.current().nextDouble();
+            if (roll < settings.errorRate() + settings.rateLimitRate()) {
+                failures.incrementAndGet();
+                sleep(latency);
+                int status = roll < settings.errorRate() ? 503 : 429;
+                send(exchange, status, "application/json", "{\"error\":{\"code\":" + status + ",\"message\":\"Injected failure\"}}");
+                return;
+            }
+            boolean malformed = roll < settings.errorRate() + settings.rateLimitRate() + settings.malformedRate();
+            if (malformed) failures.incrementAndGet();
+
+            List<String> questions = questions(prompt);
+            if (stream) {
+                streamQuiz(exchange, questions, malformed, latency);
+            } else {
+                sleep(latency);
+                send(exchange, 200, "application/json", responseBody(quizText(questions, malformed)));
+            }
+        }
+    }
+
+    // One SSE event per question, the first after a third of the latency and the rest spread over the remainder
+    private void streamQuiz(HttpExchange exchange, List<String> questions, boolean malformed, long latency) throws IOException {
+        sleep(latency / 3);
+        exchange.getResponseHeaders().set("Content-Type", "text/event-stream");
+        exchange.sendResponseHeaders(200, 0);
+        String text = quizText(questions, malformed);
+        List<String> slices = new ArrayList<>();
+        int sliceLength = Math.max(1, text.length() / Math.max(1, questions.size()));
+        for (int start = 0; start < text.length(); start += sliceLength) {
+            slices.add(text.substring(start, Math.min(text.length(), start + sliceLength)));
+        }
+        long gap = slices.size() > 1 ? (latency - latency / 3) / slices.size() : 0;
+        OutputStream out = exchange.getResponseBody();
+        for (String slice : slices) {
+            out.write(("data: " + responseBody(slice) + "\r\n\r\n").getBytes(StandardCharsets.UTF_8));
+            out.flush();
+            sleep(gap);
+        }
+    }
+
+    private List<String> questions(String prompt) {
+        Matcher count = COUNT.matcher(prompt);
+        int n = count.find() ? Math.min(Integer.parseInt(count.group(1)), 100) : 5;
+        Matcher topicMatch = TOPIC.matcher(prompt);
+        String topic = topicMatch.find() ? topicMatch.group(1) : "the uploaded document";
+        boolean fillInTheBlank = prompt.contains("'Fill in the Blank'");
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+
+        List<String> questions = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // A random serial keeps questions distinct, so the seen-question filter doesn't drop them
+            String subject = SUBJECTS[random.nextInt(SUBJECTS.length)];
+            String serial = Long.toString(random.nextLong() & Long.MAX_VALUE, 36);
+            ObjectNode question = objectMapper.createObjectNode();
+            if (fillInTheBlank) {
+                question.put("question", "In " + topic + ", ____ is " + subject + " (ref " + serial + ").");
+                question.put("answer", subject.substring(subject.lastIndexOf(' ') + 1));
+            } else {
+                question.put("question", "Which statement best describes " + subject + " of " + topic + " (ref " + serial + ")?");
+                ArrayNode options = question.putArray("options");
+                for (int o = 0; o < 4; o++) {
+                    options.add("Option " + (char) ('A' + o) + ": " + SUBJECTS[(i + o) % SUBJECTS.length] + " applies here");
+                }
+                question.put("correctOptionIndex", random.nextInt(4));
+            }
+            question.put("explanation", "This follows from " + subject.toLowerCase(Locale.ROOT) + " as usually taught.");
+            questions.add(question.toString());
+        }
+        return questions;
+    }
+
+    private static String quizText(List<String> questions, boolean malformed) {
+        String json = "{\"questions\":[" + String.join(",", questions) + "]}";
+        if (malformed) {
+            json = json.substring(0, json.length() / 2);
+        }
+        return "```json\n" + json + "\n```";
+    }
+
+    private String responseBody(String text) throws IOException {
+        ObjectNode root = objectMapper.createObjectNode();
+        ObjectNode candidate = root.putArray("candidates").addObject();
+        ObjectNode content = candidate.putObject("content");
+        content.putArray("parts").addObject().put("text", text);
+        content.put("role", "model");
+        candidate.put("finishReason", "STOP");
+        return objectMapper.writeValueAsString(root);
+    }
+
+    private static void send(HttpExchange exchange, int status, String contentType, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", contentType);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sleep(long millis) {
+        if (millis <= 0) return;
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
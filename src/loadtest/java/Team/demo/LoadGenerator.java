@@ -0,0 +1,270 @@
+package Team.demo;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.io.PrintStream;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Drives the app through the pages a real user hits: register and log in once, then
+ * repeat generate (and the question stream, if the page opens one) → submit → history
+ * until the run ends. Each virtual user is a thread with its own cookie jar. Every step
+ * is timed and reported with its throughput and latency percentiles.
+ */
+public class LoadGenerator {
+
+    private static final Pattern QUIZ_ID = Pattern.compile("name=\"quizId\" value=\"([^\"]+)\"");
+    private static final Pattern STREAM_ID = Pattern.compile("const streamId = \"([^\"]+)\"");
+    private static final Pattern RENDERED_OPTION = Pattern.compile("name=\"q(\\d+)\" value=\"([^\"]*)\"");
+
+    /**
+     * @param baseUrl   where the app is listening, e.g. http://localhost:8080
+     * @param users     number of concurrent virtual users
+     * @param duration  how long to keep starting new flows
+     * @param rampUp    time over which the users are started
+     * @param thinkTime pause between two steps of one user
+     */
+    public record Settings(String baseUrl, int users, Duration duration, Duration rampUp, Duration thinkTime,
+                           int numberOfQuestions, String type, List<String> topics) {}
+
+    private final Settings settings;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final Map<String, LatencyRecorder> latencies = new ConcurrentHashMap<>();
+    private final Map<String, AtomicLong> errors = new ConcurrentHashMap<>();
+    private final AtomicLong flows = new AtomicLong();
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    public LoadGenerator(Settings settings) {
+        this.settings = settings;
+    }
+
+    /** Runs the load and blocks until every user has finished its last flow. */
+    public void run() throws InterruptedException {
+        ExecutorService users = Executors.newFixedThreadPool(settings.users());
+        long deadline = System.nanoTime() + settings.duration().toNanos();
+        long rampStep = settings.users() > 1 ? settings.rampUp().toNanos() / settings.users() : 0;
+        for (int i = 0; i < settings.users(); i++) {
+            int user = i;
+            long delay = rampStep * i;
+            users.execute(() -> {
+                sleep(Duration.ofNanos(delay));
+                runUser(user, deadline);
+            });
+        }
+        users.shutdown();
+        users.awaitTermination(settings.duration().plus(settings.rampUp()).toMillis() + 300_000, TimeUnit.MILLISECONDS);
+    }
+
+    private void runUser(int user, long deadline) {
+        HttpClient client = HttpClient.newBuilder()
+                .cookieHandler(new CookieManager())
+                .connectTimeout(Duration.ofSeconds(5))
+                .followRedirects(HttpClient.Redirect.NEVER)
+                .build();
+        String username = "load-" + runId + "-" + user;
+        try {
+            timed("register", () -> post(client, "/register", Map.of("username", username, "password", "load-test"), 302));
+            if (!timed("login", () -> post(client, "/login", Map.of("username", username, "password", "load-test"), 302)
+                    .headers().firstValue("Location").filter(location -> !location.contains("error")).isPresent())) {
+                throw new IllegalStateException("Login failed for " + username);
+            }
+        } catch (Exception e) {
+            error("login");
+            return;
+        }
+
+        while (System.nanoTime() < deadline) {
+            long start = System.nanoTime();
+            try {
+                flow(client);
+                record("flow", start);
+                flows.incrementAndGet();
+            } catch (Exception e) {
+                // The step that failed has already counted its error
+            }
+            sleep(settings.thinkTime());
+        }
+    }
+
+    private void flow(HttpClient client) throws Exception {
+        String topic = settings.topics().get(ThreadLocalRandom.current().nextInt(settings.topics().size()));
+        Map<String, String> form = new LinkedHashMap<>();
+        form.put("topic", topic);
+        form.put("numberOfQuestions", Integer.toString(settings.numberOfQuestions()));
+        form.put("difficulty", "Medium");
+        form.put("type", settings.type());
+        form.put("totalTime", "0");
+        // A redirect means generation failed and the user was sent back to the home page
+        String page = timed("generate", () -> post(client, "/generate-quiz", form, 200)).body();
+        String quizId = find(QUIZ_ID, page, "quizId");
+        Map<String, String> answers = new TreeMap<>();
+        Matcher streamId = STREAM_ID.matcher(page);
+        if (streamId.find()) {
+            stream(client, streamId.group(1), answers);
+        } else {
+            Matcher option = RENDERED_OPTION.matcher(page);
+            while (option.find()) {
+                answers.putIfAbsent("q" + option.group(1), unescape(option.group(2)));
+            }
+        }
+        sleep(settings.thinkTime());
+
+        Map<String, String> submission = new LinkedHashMap<>(answers);
+        submission.put("quizId", quizId);
+        timed("submit", () -> post(client, "/submit", submission, 200));
+        sleep(settings.thinkTime());
+        timed("history", () -> get(client, "/history"));
+    }
+
+    // Reads the SSE stream to its "done" event, answering each multiple choice question with a random option
+    private void stream(HttpClient client, String streamId, Map<String, String> answers) throws Exception {
+        long start = System.nanoTime();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.baseUrl() + "/generate-quiz/stream/" + streamId))
+                .header("Accept", "text/event-stream").timeout(Duration.ofMinutes(3)).GET().build();
+        HttpResponse<Stream<String>> response = client.send(request, HttpResponse.BodyHandlers.ofLines());
+        String event = null;
+        boolean first = true;
+        try (Stream<String> lines = response.body()) {
+            for (String line : (Iterable<String>) lines::iterator) {
+                if (line.startsWith("event:")) {
+                    event = line.substring(6).trim();
+                } else if (line.startsWith("data:") && event != null) {
+                    String data = line.substring(5);
+                    switch (event) {
+                        case "question" -> {
+                            if (first) {
+                                record("stream-first-question", start);
+                                first = false;
+                            }
+                            JsonNode question = objectMapper.readTree(data);
+                            JsonNode options = question.path("options");
+                            answers.put("q" + question.path("index").asInt(), options.isEmpty()
+                                    ? "unknown" : options.path(ThreadLocalRandom.current().nextInt(options.size())).asText());
+                        }
+                        case "done" -> {
+                            record("stream", start);
+                            return;
+                        }
+                        case "failed" -> {
+                            error("stream");
+                            throw new IllegalStateException("Stream failed: " + data);
+                        }
+                        default -> { }
+                    }
+                }
+            }
+        }
+        error("stream");
+        throw new IllegalStateException("Stream ended without a done event.");
+    }
+
+    private HttpResponse<String> post(HttpClient client, String path, Map<String, String> form, int expectedStatus) throws IOException, InterruptedException {
+        String body = form.entrySet().stream()
+                .map(e -> URLEncoder.encode(e.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(e.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.baseUrl() + path))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .timeout(Duration.ofMinutes(3))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return expect(client.send(request, HttpResponse.BodyHandlers.ofString()), expectedStatus);
+    }
+
+    private HttpResponse<String> get(HttpClient client, String path) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(settings.baseUrl() + path)).timeout(Duration.ofMinutes(1)).GET().build();
+        return expect(client.send(request, HttpResponse.BodyHandlers.ofString()), 200);
+    }
+
+    private static HttpResponse<String> expect(HttpResponse<String> response, int expectedStatus) throws IOException {
+        if (response.statusCode() != expectedStatus) {
+            throw new IOException("Expected " + expectedStatus + " from " + response.uri().getPath() + " but got " + response.statusCode());
+        }
+        return response;
+    }
+
+    private interface Step<T> {
+        T call() throws Exception;
+    }
+
+    private <T> T timed(String step, Step<T> work) throws Exception {
+        long start = System.nanoTime();
+        try {
+            T result = work.call();
+            record(step, start);
+            return result;
+        } catch (Exception e) {
+            error(step);
+            throw e;
+        }
+    }
+
+    private void record(String step, long startNanos) {
+        latencies.computeIfAbsent(step, k -> new LatencyRecorder(1_000_000))
+                .record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos));
+    }
+
+    private void error(String step) {
+        errors.computeIfAbsent(step, k -> new AtomicLong()).incrementAndGet();
+    }
+
+    /** Prints one row per step: successes, errors, throughput and latency percentiles in ms. */
+    public void report(PrintStream out, Duration elapsed) {
+        double seconds = Math.max(1, elapsed.toMillis()) / 1000.0;
+        out.printf("%n%d users, %d complete flows in %.1fs (%.2f flows/s)%n", settings.users(), flows.get(), seconds, flows.get() / seconds);
+        out.printf("%-22s %8s %7s %9s %8s %8s %8s %8s%n", "step", "ok", "errors", "req/s", "p50", "p90", "p99", "max");
+        for (String step : List.of("register", "login", "generate", "stream-first-question", "stream", "submit", "history", "flow")) {
+            LatencyRecorder recorder = latencies.get(step);
+            long ok = recorder == null ? 0 : recorder.getCount();
+            long failed = errors.getOrDefault(step, new AtomicLong()).get();
+            if (ok == 0 && failed == 0) continue;
+            out.printf("%-22s %8d %7d %9.2f %8d %8d %8d %8d%n", step, ok, failed, ok / seconds,
+                    recorder == null ? 0 : recorder.percentile(50), recorder == null ? 0 : recorder.percentile(90),
+                    recorder == null ? 0 : recorder.percentile(99), recorder == null ? 0 : recorder.percentile(100));
+        }
+    }
+
+    private String find(Pattern pattern, String page, String what) {
+        Matcher matcher = pattern.matcher(page);
+        if (!matcher.find()) {
+            error("generate");
+            throw new IllegalStateException("No " + what + " on the quiz page.");
+        }
+        return matcher.group(1);
+    }
+
+    private static String unescape(String html) {
+        return html.replace("&quot;", "\"").replace("&#39;", "'").replace("&lt;", "<").replace("&gt;", ">").replace("&amp;", "&");
+    }
+
+    private static void sleep(Duration duration) {
+        if (duration.isZero() || duration.isNegative()) return;
+        try {
+            Thread.sleep(duration.toMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package Team.demo;
+
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Load test entry point. Starts a {@link FakeGeminiServer}, starts the app against it on a
+ * random port (unless {@code --target} points at one that is already running) and runs the
+ * {@link LoadGenerator}. Run with:
+ * <pre>
+ * mvn -Pload-test test-compile exec:exec -Dloadtest.args="--users=50 --duration-s=120 --latency=lognormal:1500:0.6"
+ * </pre>
+ * Options (defaults in brackets): users [20], duration-s [60], ramp-up-s [10], think-ms [500],
+ * questions [5], type [Multiple Choice], topics [comma separated list], target [embedded app],
+ * latency [lognormal:1200:0.5], error-rate [0.02], rate-limit-rate [0.01], malformed-rate [0.01],
+ * fake-port [0], models [1: extra model endpoints on the fake server, for routing and hedging]. {@code --fake-only} just runs the fake server on fake-port, for pointing a
+ * separately started app at it. {@code --compare} runs the same load against a fresh app with
+ * platform threads and then with virtual threads (spring.threads.virtual.enabled, Java 21+). Any {@code --app.<property>=<value>} is passed to the embedded app,
+ * e.g. {@code --app.quiz.bank.enabled=false}.
+ */
+public class LoadTest {
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = parse(args);
+        FakeGeminiServer.Settings fakeSettings = new FakeGeminiServer.Settings(
+                FakeGeminiServer.Latency.parse(options.getOrDefault("latency", "lognormal:1200:0.5")),
+                Double.parseDouble(options.getOrDefault("error-rate", "0.02")),
+                Double.parseDouble(options.getOrDefault("rate-limit-rate", "0.01")),
+                Double.parseDouble(options.getOrDefault("malformed-rate", "0.01")));
+
+        try (FakeGeminiServer gemini = new FakeGeminiServer(Integer.parseInt(options.getOrDefault("fake-port", "0")), fakeSettings).start()) {
+            System.out.println("Fake Gemini (" + fakeSettings + ") at " + gemini.generateUrl());
+            if (options.containsKey("fake-only")) {
+                System.out.println("Start the app with --gemini.api.url=" + gemini.generateUrl() + " and --gemini.api.key=load-test. Ctrl+C to stop.");
+                Thread.currentThread().join();
+            }
+
+            if (options.containsKey("compare")) {
+                // Same load against a fresh app in each threading mode, one after the other
+                if (Runtime.version().feature() < 21) {
+                    System.out.println("Virtual threads need Java 21+; the second run will fall back to platform threads.");
+                }
+                for (String virtual : List.of("false", "true")) {
+                    options.put("app.spring.threads.virtual.enabled", virtual);
+                    System.out.println("\n=== " + ("true".equals(virtual) ? "Virtual" : "Platform") + " threads ===");
+                    run(gemini, options);
+                }
+            } else {
+                run(gemini, options);
+            }
+        }
+    }
+
+    private static void run(FakeGeminiServer gemini, Map<String, String> options) throws InterruptedException {
+        ConfigurableApplicationContext app = null;
+        String target = options.get("target");
+        if (target == null) {
+            app = startApp(gemini, options);
+            target = "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+        }
+        try {
+            LoadGenerator generator = new LoadGenerator(new LoadGenerator.Settings(
+                    target,
+                    Integer.parseInt(options.getOrDefault("users", "20")),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("duration-s", "60"))),
+                    Duration.ofSeconds(Long.parseLong(options.getOrDefault("ramp-up-s", "10"))),
+                    Duration.ofMillis(Long.parseLong(options.getOrDefault("think-ms", "500"))),
+                    Integer.parseInt(options.getOrDefault("questions", "5")),
+                    options.getOrDefault("type", "Multiple Choice"),
+                    Arrays.asList(options.getOrDefault("topics",
+                            "Photosynthesis,The French Revolution,Linear Algebra,Java Concurrency,Plate Tectonics,Roman History").split(","))));
+            System.out.println("Running load against " + target + " ...");
+            long callsBefore = gemini.getCalls();
+            long failuresBefore = gemini.getFailures();
+            long start = System.nanoTime();
+            generator.run();
+            generator.report(System.out, Duration.ofNanos(System.nanoTime() - start));
+            System.out.printf("Fake Gemini served %d calls (%d injected failures).%n",
+                    gemini.getCalls() - callsBefore, gemini.getFailures() - failuresBefore);
+        } finally {
+            if (app != null) app.close();
+        }
+    }
+
+    private static ConfigurableApplicationContext startApp(FakeGeminiServer gemini, Map<String, String> options) {
+        // DevTools would restart the app in a new class loader and rerun this main method
+        System.setProperty("spring.devtools.restart.enabled", "false");
+        // Passed as command line arguments so they win over application.properties
+        Map<String, String> properties = new HashMap<>();
+        properties.put("server.port", "0");
+        properties.put("gemini.api.url", gemini.generateUrl());
+        properties.put("gemini.api.stream-url", "");
+        properties.put("gemini.api.key", "load-test");
+        List<String> models = new ArrayList<>();
+        for (int i = 2; i <= Integer.parseInt(options.getOrDefault("models", "1")); i++) {
+            models.add("fake-" + i + "=" + gemini.generateUrl().replace("fake-gemini", "fake-gemini-" + i));
+        }
+        properties.put("gemini.api.models", String.join(",", models));
+        options.forEach((key, value) -> {
+            if (key.startsWith("app.")) properties.put(key.substring(4), value);
+        });
+        String[] args = properties.entrySet().stream().map(e -> "--" + e.getKey() + "=" + e.getValue()).toArray(String[]::new);
+        return new SpringApplicationBuilder(AiQuizApplication.class).run(args);
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : List.of(args)) {
+            if (!arg.startsWith("--")) {
+                throw new IllegalArgumentException("Options look like --name=value, got: " + arg);
+            }
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                options.put(arg.substring(2), "true");
+            } else {
+                options.put(arg.substring(2, equals), arg.substring(equals + 1));
+            }
+        }
+        return options;
+    }
+}
@@ -0,0 +1,21 @@
+package Team.demo;
+
+import java.util.function.Consumer;
+
+/**
+ * One model endpoint quizzes can be generated with. {@link AiRouter} picks between the
+ * configured providers; {@link GeminiClient} is the HTTP implementation.
+ */
+public interface AiProvider {
+
+    String getName();
+
+    /** False while the provider is known to be down and calls would fail fast anyway. */
+    boolean isAvailable();
+
+    /** Posts a GenerateContentRequest body and returns the response body. */
+    String generateContent(String requestBody);
+
+    /** Posts to the streaming endpoint and hands the payload of every SSE event to {@code onData}. */
+    void streamGenerateContent(String requestBody, Consumer<String> onData);
+}
@@ -2,80 +2,579 @@ package Team.demo;
 
 import Team.demo.model.Question;
 import Team.demo.model.Quiz;
-import Team.demo.model.QuizResult;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import org.apache.pdfbox.Loader; // <-- Import Loader
-import org.apache.pdfbox.pdmodel.PDDocument;
-import org.apache.pdfbox.text.PDFTextStripper;
-import org.apache.poi.xwpf.extractor.XWPFWordExtractor;
-import org.apache.poi.xwpf.usermodel.XWPFDocument; // <-- Import XWPFDocument
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.*;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.io.InputStream;
-import java.nio.charset.StandardCharsets;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class AiQuizService {
 
     private static final Logger logger = LoggerFactory.getLogger(AiQuizService.class);
-    private final RestTemplate restTemplate;
-    private final ObjectMapper objectMapper = new ObjectMapper();
-    private final QuizResultRepository quizResultRepository;
 
-    @Value("${gemini.api.key}")
-    private String geminiApiKey;
-    @Value("${gemini.api.url}")
-    private String geminiApiUrl;
+    /** Shown with a {@link #createFallbackQuiz fallback quiz}, so the user knows it isn't a real one. */
+    public static final String FALLBACK_NOTE = "⚠️ AI service unavailable. Showing a fallback quiz.";
+    // Each chunk of a large quiz gets its own angle so the parts don't ask the same things
+    private static final String[] CHUNK_FOCUSES = {
+            "core definitions and terminology",
+            "how the key mechanisms and processes work",
+            "practical applications and real-world examples",
+            "common misconceptions, pitfalls and edge cases",
+            "comparisons and relationships with related concepts",
+            "history, notable facts and advanced details"
+    };
+    private final AiRouter aiRouter;
+    private final GeminiCodec geminiCodec;
+    private final QuestionFingerprintService fingerprintService;
+    private final QuestionBank questionBank;
+    private final DocumentTextExtractor documentTextExtractor;
+    private final PassageSelector passageSelector;
+    private final PromptCompactor promptCompactor;
+    private final TopicIndex topicIndex;
+    private final Executor bankRefillExecutor;
+    private final Executor quizChunkExecutor;
+    private final ObservationRegistry observationRegistry;
+    private final Counter questionsRequested;
+    private final Counter questionsParsed;
+    private final Counter questionsSeen;
+    private final Counter fallbacks;
+    private final Counter coalesced;
+    private final Counter chunksFailed;
+    private final DistributionSummary promptTokens;
+    // Identical generations that are running right now, shared by everyone who asks for them
+    private final SingleFlight<FlightKey, Quiz> generations = new SingleFlight<>();
 
-    public AiQuizService(RestTemplate restTemplate, QuizResultRepository quizResultRepository) {
-        this.restTemplate = restTemplate;
-        this.quizResultRepository = quizResultRepository;
+    // Keys with a background refill already queued, so bursts don't queue duplicates
+    private final Set<QuestionBank.Key> refillsInFlight = ConcurrentHashMap.newKeySet();
+    private final LatencyRecorder bankLatency = new LatencyRecorder(1000);
+    private final LatencyRecorder aiLatency = new LatencyRecorder(1000);
+
+    @Value("${quiz.bank.enabled:true}")
+    private boolean bankEnabled;
+    @Value("${quiz.bank.low-watermark:10}")
+    private int bankLowWatermark;
+    @Value("${quiz.bank.refill-size:20}")
+    private int bankRefillSize;
+
+    @Value("${quiz.context.token-budget:6000}")
+    private int contextTokenBudget;
+    @Value("${quiz.prompt.token-budget:8000}")
+    private int promptTokenBudget;
+
+    @Value("${quiz.coalescing.enabled:true}")
+    private boolean coalescingEnabled;
+
+    @Value("${quiz.fanout.chunk-size:10}")
+    private int chunkSize;
+    @Value("${quiz.fanout.max-attempts:2}")
+    private int chunkMaxAttempts;
+
+    public AiQuizService(AiRouter aiRouter, QuestionFingerprintService fingerprintService,
+                         QuestionBank questionBank, DocumentTextExtractor documentTextExtractor, PassageSelector passageSelector,
+                         PromptCompactor promptCompactor, TopicIndex topicIndex,
+                         @Qualifier("bankRefillExecutor") Executor bankRefillExecutor,
+                         @Qualifier("quizChunkExecutor") Executor quizChunkExecutor,
+                         MeterRegistry meterRegistry, ObservationRegistry observationRegistry) {
+        this.aiRouter = aiRouter;
+        this.fingerprintService = fingerprintService;
+        this.questionBank = questionBank;
+        this.documentTextExtractor = documentTextExtractor;
+        this.passageSelector = passageSelector;
+        this.promptCompactor = promptCompactor;
+        this.topicIndex = topicIndex;
+        this.bankRefillExecutor = bankRefillExecutor;
+        this.quizChunkExecutor = quizChunkExecutor;
+        this.observationRegistry = observationRegistry;
+        this.geminiCodec = new GeminiCodec(meterRegistry);
+        this.questionsRequested = Counter.builder("quiz.questions.requested")
+                .description("Questions asked of the AI service").register(meterRegistry);
+        this.questionsParsed = Counter.builder("quiz.questions.parsed")
+                .description("Gradeable questions parsed from AI responses").register(meterRegistry);
+        this.questionsSeen = Counter.builder("quiz.questions.skipped").tag("reason", "seen")
+                .description("Generated questions dropped before reaching the user").register(meterRegistry);
+        this.fallbacks = Counter.builder("quiz.fallbacks")
+                .description("Canned quizzes served because the AI service could not be used").register(meterRegistry);
+        this.promptTokens = DistributionSummary.builder("quiz.prompt.tokens").baseUnit("tokens")
+                .description("Estimated size of the prompts sent to the AI service").register(meterRegistry);
+        this.coalesced = Counter.builder("quiz.coalesced")
+                .description("Generations served from an identical request already in flight").register(meterRegistry);
+        this.chunksFailed = Counter.builder("quiz.chunks.failed")
+                .description("Chunks of a large quiz that produced no questions after every attempt").register(meterRegistry);
     }
 
     public Quiz generateQuiz(String topic, int numberOfQuestions, String difficulty, String type, MultipartFile file, String username) throws IOException {
-        String context;
-        if (file != null && !file.isEmpty()) {
-            String fileText = extractTextFromFile(file);
-            // Escape newlines and quotes for the JSON prompt
-            String escapedFileText = fileText.replace("\"", "\\\"").replace("\n", "\\n");
-            context = "Based on the following document text: \n\"" + escapedFileText + "\"\n\n";
+        return generateQuiz(prepareRequest(topic, numberOfQuestions, difficulty, type, file, username));
+    }
+
+    public Quiz generateQuiz(QuizRequest request) {
+        return generate(request, true);
+    }
+
+    /**
+     * Generates a quiz without touching the question bank: nothing is taken from it and
+     * nothing added. For speculative work like prefetching, which must neither drain nor
+     * fill the pool every other user draws from.
+     */
+    public Quiz generateUnbanked(QuizRequest request) {
+        return generate(request, false);
+    }
+
+    private Quiz generate(QuizRequest request, boolean useBank) {
+        return Observation.createNotStarted("quiz.generate", observationRegistry)
+                .lowCardinalityKeyValue("type", request.type())
+                .lowCardinalityKeyValue("source", request.fromFile() ? "file" : "topic")
+                .observe(() -> {
+                    long start = System.currentTimeMillis();
+                    Quiz banked = useBank ? stage("bank", () -> takeFromBank(request)) : null;
+                    if (banked != null) {
+                        recordLatency(bankLatency, start);
+                        return banked;
+                    }
+
+                    SingleFlight.Result<Quiz> generated = stage("ai", () -> coalesce(request, () -> request.numberOfQuestions() > chunkSize
+                            ? generateInChunks(request, chunk -> {})
+                            : generateQuizFromPrompt(stage("prompt", () -> buildPrompt(request)), request.numberOfQuestions(),
+                                    request.topic(), request.difficulty(), request.type())));
+                    Quiz quiz = stage("filter", () -> generated.shared()
+                            ? personalize(request, generated.value())
+                            : dropSeenQuestions(request, generated.value()));
+                    recordLatency(aiLatency, start);
+                    if (useBank && !generated.shared()) {
+                        addToBank(request, quiz); // The request that made the call banks its questions, once
+                    }
+                    return quiz;
+                });
+    }
+
+    /**
+     * Runs the generation unless an identical one (same topic, difficulty, type, count and
+     * document) is already in flight, in which case this request waits for and shares it.
+     * A shared quiz holds every question the AI returned, before anyone's seen-filter.
+     */
+    private SingleFlight.Result<Quiz> coalesce(QuizRequest request, Supplier<Quiz> generate) {
+        if (!coalescingEnabled) {
+            return new SingleFlight.Result<>(generate.get(), false);
+        }
+        SingleFlight.Result<Quiz> result = generations.execute(FlightKey.of(request), generate);
+        if (result.shared()) {
+            coalesced.increment();
+            logger.info("Shared an in-flight generation for '{}'.", request.topic());
+        }
+        return result;
+    }
+
+    /** What makes two generation requests interchangeable. */
+    record FlightKey(String topicKey, String difficulty, String type, int numberOfQuestions, String documentHash) {
+        static FlightKey of(QuizRequest request) {
+            return new FlightKey(request.topicKey(), QuestionBank.normalize(request.difficulty()),
+                    QuestionBank.normalize(request.type()), request.numberOfQuestions(), request.documentHash());
+        }
+    }
+
+    // A shared quiz filtered for this user, in an order of its own so neighbours' screens don't match
+    private Quiz personalize(QuizRequest request, Quiz shared) {
+        Random random = ThreadLocalRandom.current();
+        List<Question> questions = new ArrayList<>();
+        for (Question question : dropSeenQuestions(request, shared).getQuestions()) {
+            questions.add(shuffledCopy(question, random));
+        }
+        Collections.shuffle(questions, random);
+        return new Quiz(shared.getTopic(), shared.getDifficulty(), shared.getType(), questions);
+    }
+
+    /** A copy of the question with its options in random order and the answer index moved to match. */
+    static Question shuffledCopy(Question original, Random random) {
+        Question copy = new Question();
+        copy.setType(original.getType());
+        copy.setQuestion(original.getQuestion());
+        copy.setAnswer(original.getAnswer());
+        copy.setExplanation(original.getExplanation());
+        copy.setCorrectOptionIndex(original.getCorrectOptionIndex());
+        List<String> options = original.getOptions();
+        if (options != null) {
+            List<Integer> order = new ArrayList<>();
+            for (int i = 0; i < options.size(); i++) order.add(i);
+            Collections.shuffle(order, random);
+            List<String> shuffled = new ArrayList<>(options.size());
+            for (int i : order) shuffled.add(options.get(i));
+            copy.setOptions(shuffled);
+            int correct = original.getCorrectOptionIndex();
+            if (correct >= 0 && correct < options.size()) {
+                copy.setCorrectOptionIndex(order.indexOf(correct));
+            }
+        }
+        return copy;
+    }
+
+    // One child span (and quiz.stage timer) per step of generating a quiz
+    private <T> T stage(String name, Supplier<T> work) {
+        return Observation.createNotStarted("quiz.stage", observationRegistry)
+                .contextualName("quiz " + name)
+                .lowCardinalityKeyValue("stage", name)
+                .observe(work);
+    }
+
+    /**
+     * Removes questions the user has already had (or close rewordings of them). If the AI
+     * ignored the exclusion list entirely, the quiz is kept as is rather than left empty.
+     */
+    private Quiz dropSeenQuestions(QuizRequest request, Quiz quiz) {
+        if (request.seen().size() == 0) {
+            return quiz;
+        }
+        List<Question> fresh = quiz.getQuestions().stream()
+                .filter(q -> !request.seen().contains(q.getQuestion()))
+                .collect(Collectors.toList());
+        if (fresh.size() < quiz.getQuestions().size()) {
+            questionsSeen.increment(quiz.getQuestions().size() - fresh.size());
+            logger.info("Filtered {} previously seen questions for '{}'.", quiz.getQuestions().size() - fresh.size(), request.topic());
+        }
+        return fresh.isEmpty() ? quiz : new Quiz(quiz.getTopic(), quiz.getDifficulty(), quiz.getType(), fresh);
+    }
+
+    /**
+     * Splits a large quiz into chunks that are generated concurrently, each steered towards
+     * a different angle of the topic. A failed chunk is retried on its own; the quiz only
+     * fails if every chunk does, and is short by the failed chunks' questions otherwise.
+     * Results are merged in chunk order with duplicates removed. Each chunk's questions are
+     * also handed to {@code onChunk} as soon as that chunk is done, on the thread that made it.
+     */
+    private Quiz generateInChunks(QuizRequest request, Consumer<List<Question>> onChunk) {
+        int chunkCount = (request.numberOfQuestions() + chunkSize - 1) / chunkSize;
+        List<CompletableFuture<List<Question>>> chunks = new ArrayList<>();
+        for (int i = 0; i < chunkCount; i++) {
+            // Spread the questions evenly, e.g. 23 -> 8, 8, 7
+            int size = request.numberOfQuestions() / chunkCount + (i < request.numberOfQuestions() % chunkCount ? 1 : 0);
+            String focus = CHUNK_FOCUSES[i % CHUNK_FOCUSES.length];
+            String chunkPrompt = buildPrompt(request, size)
+                    + String.format(" This is part %d of %d of a larger quiz. To avoid overlapping with the other parts, focus ONLY on %s.",
+                    i + 1, chunkCount, focus);
+            int part = i + 1;
+            Supplier<List<Question>> chunk = () -> {
+                List<Question> generated = generateChunk(chunkPrompt, size, request, part);
+                onChunk.accept(generated);
+                return generated;
+            };
+            try {
+                chunks.add(CompletableFuture.supplyAsync(chunk, quizChunkExecutor));
+            } catch (RejectedExecutionException e) {
+                // The chunk pool is saturated: generate this part on the calling thread rather than fail the quiz
+                logger.debug("Chunk executor is full; generating chunk {} for '{}' inline.", part, request.topic());
+                chunks.add(CompletableFuture.completedFuture(chunk.get()));
+            }
+        }
+
+        Map<String, Question> merged = new LinkedHashMap<>();
+        int failed = 0;
+        for (CompletableFuture<List<Question>> chunk : chunks) {
+            try {
+                List<Question> generated = chunk.join();
+                if (generated.isEmpty()) failed++;
+                for (Question question : generated) {
+                    merged.putIfAbsent(QuestionBank.normalize(question.getQuestion()), question);
+                }
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof CircuitOpenException open) throw open;
+                throw e;
+            }
+        }
+        chunksFailed.increment(failed);
+        if (merged.isEmpty()) {
+            throw new RuntimeException("Every chunk of the quiz failed to generate.");
+        }
+        List<Question> questions = merged.values().stream().limit(request.numberOfQuestions()).collect(Collectors.toList());
+        if (questions.size() < request.numberOfQuestions()) {
+            logger.warn("Generated only {} of {} requested questions for '{}' ({} of {} chunks failed).",
+                    questions.size(), request.numberOfQuestions(), request.topic(), failed, chunkCount);
+        } else {
+            logger.info("Generated {} requested questions for '{}' in {} chunks.", questions.size(), request.topic(), chunkCount);
+        }
+        return new Quiz(request.topic(), request.difficulty(), request.type(), questions);
+    }
+
+    private List<Question> generateChunk(String prompt, int size, QuizRequest request, int part) {
+        for (int attempt = 1; attempt <= chunkMaxAttempts; attempt++) {
+            try {
+                return generateQuizFromPrompt(prompt, size, request.topic(), request.difficulty(), request.type()).getQuestions();
+            } catch (CircuitOpenException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                logger.warn("Chunk {} for '{}' failed (attempt {} of {}).", part, request.topic(), attempt, chunkMaxAttempts);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Does the request-bound work up front: reads the uploaded file, resolves the topic
+     * and collects the user's past questions, so generation can happen later on any thread.
+     * The prompt is kept within quiz.prompt.token-budget: the exclusion sample and then the
+     * compacted document get whatever the instructions leave over.
+     */
+    public QuizRequest prepareRequest(String topic, int numberOfQuestions, String difficulty, String type, MultipartFile file, String username) throws IOException {
+        boolean fromFile = file != null && !file.isEmpty();
+        // Passages are selected for the topic as asked, before it falls back to the file name
+        String selectedFor = topic;
+        String documentText = null;
+        String documentHash = null;
+        if (fromFile) {
+            DocumentTextExtractor.ExtractedDocument document = Observation.createNotStarted("quiz.stage", observationRegistry)
+                    .contextualName("quiz extract")
+                    .lowCardinalityKeyValue("stage", "extract")
+                    .observeChecked(() -> documentTextExtractor.extract(file));
+            documentText = document.text();
+            documentHash = document.sha256();
             // If no topic is provided, try to infer it from the file name
             if (topic == null || topic.isBlank()) {
                 topic = file.getOriginalFilename();
             }
+        }
+
+        // Only a bounded sample goes into the prompt; the full fingerprint index filters locally
+        String resolvedTopic = topic;
+        QuestionFingerprintService.SeenQuestions seen = stage("fingerprints", () -> fingerprintService.load(username, resolvedTopic));
+        // A long topic can use up the whole budget; then the sample and document get nothing rather than a negative share
+        int remainingTokens = Math.max(0, promptTokenBudget - PromptCompactor.estimateTokens(buildPrompt(numberOfQuestions, "", difficulty, type, "")));
+        List<String> exclusionSample = promptCompactor.fit(fingerprintService.promptSample(username, topic),
+                fromFile ? remainingTokens / 4 : remainingTokens);
+
+        String context;
+        if (fromFile) {
+            String rawText = documentText;
+            int documentBudget = Math.max(0, Math.min(contextTokenBudget, remainingTokens - PromptCompactor.estimateTokens(exclusionSample.toString())));
+            // Headers, footers and whitespace go first, then only the passages most relevant
+            // to the topic (or a spread of the document) go into the prompt
+            String compacted = stage("compact", () -> promptCompactor.compact(rawText));
+            String fileText = stage("passages", () ->
+                    promptCompactor.fit(passageSelector.select(compacted, selectedFor, documentBudget), documentBudget));
+            context = documentContext(fileText);
         } else {
             context = "on the topic of '" + topic + "'";
         }
+        return new QuizRequest(topic, topicIndex.canonicalId(topic), numberOfQuestions, difficulty, type, context, fromFile, documentHash,
+                exclusionSample, seen);
+    }
 
-        // ✅ FIX for lambda error: Create a final variable for use in the lambda
-        final String effectiveTopic = topic;
-        String exclusionPrompt = "";
-        if (effectiveTopic != null && !effectiveTopic.isBlank() && username != null) {
-            List<String> pastQuestions = quizResultRepository.findByUser_UsernameOrderByTimestampDesc(username).stream()
-                    // Use the 'effectiveTopic' variable here
-                    .filter(result -> effectiveTopic.equalsIgnoreCase(result.getTopic()))
-                    .flatMap(result -> result.getQuestionResults().stream().map(qr -> qr.getQuestionText()))
-                    .distinct().collect(Collectors.toList());
-            if (!pastQuestions.isEmpty()) {
-                exclusionPrompt = " CRITICAL: Do NOT repeat any of the following questions: " + pastQuestions.toString();
+    /** The request with the user's seen questions loaded again, e.g. after it came back from the quiz store. */
+    public QuizRequest withSeenQuestions(QuizRequest request, String username) {
+        QuestionFingerprintService.SeenQuestions seen = stage("fingerprints", () -> fingerprintService.load(username, request.topic()));
+        return new QuizRequest(request.topic(), request.topicKey(), request.numberOfQuestions(), request.difficulty(), request.type(),
+                request.context(), request.fromFile(), request.documentHash(), request.exclusionSample(), seen);
+    }
+
+    /**
+     * Returns a quiz made entirely of banked questions the user hasn't seen, or null on a miss.
+     * Questions in the bank aren't tied to a document, so only plain topic quizzes can use it.
+     */
+    public Quiz takeFromBank(QuizRequest request) {
+        if (!bankEnabled || request.fromFile()) {
+            return null;
+        }
+        QuestionBank.Key key = QuestionBank.key(request.topicKey(), request.difficulty(), request.type());
+        List<Question> banked = questionBank.take(key, request.numberOfQuestions(), q -> !request.seen().contains(q.getQuestion()));
+        if (banked.isEmpty()) {
+            return null;
+        }
+        refillIfLow(key, request.topic(), request.difficulty(), request.type());
+        return new Quiz(request.topic(), request.difficulty(), request.type(), new ArrayList<>(banked));
+    }
+
+    private void addToBank(QuizRequest request, Quiz quiz) {
+        if (bankEnabled && !request.fromFile()) {
+            QuestionBank.Key key = QuestionBank.key(request.topicKey(), request.difficulty(), request.type());
+            questionBank.add(key, quiz.getQuestions());
+            refillIfLow(key, request.topic(), request.difficulty(), request.type());
+        }
+    }
+
+    /**
+     * Generates the quiz through Gemini's streaming endpoint and hands every question to
+     * {@code onQuestion} as soon as its JSON object is complete. Returns the full quiz at the end.
+     */
+    public Quiz streamQuiz(QuizRequest request, Consumer<Question> onQuestion) {
+        return Observation.createNotStarted("quiz.stream", observationRegistry)
+                .lowCardinalityKeyValue("type", request.type())
+                .lowCardinalityKeyValue("source", request.fromFile() ? "file" : "topic")
+                .observe(() -> {
+                    // The stream that makes the call sends questions as they arrive; requests that
+                    // joined it get the whole quiz, filtered and shuffled for them, when it ends
+                    AtomicReference<Quiz> own = new AtomicReference<>();
+                    SingleFlight.Result<Quiz> streamed = coalesce(request, () -> {
+                        List<Question> all = new ArrayList<>();
+                        own.set(request.numberOfQuestions() > chunkSize
+                                ? streamInChunks(request, untilFailure(request, onQuestion), all)
+                                : doStreamQuiz(request, untilFailure(request, onQuestion), all));
+                        return new Quiz(request.topic(), request.difficulty(), request.type(), all);
+                    });
+                    if (!streamed.shared()) {
+                        return own.get();
+                    }
+                    Quiz quiz = personalize(request, streamed.value());
+                    quiz.getQuestions().forEach(onQuestion);
+                    return quiz;
+                });
+    }
+
+    /**
+     * Passes questions on until the consumer first throws, e.g. because the browser went
+     * away, and drops the rest. The stream keeps going for the requests that joined it, so
+     * only an upstream error fails the flight.
+     */
+    private static Consumer<Question> untilFailure(QuizRequest request, Consumer<Question> onQuestion) {
+        AtomicBoolean failed = new AtomicBoolean();
+        return question -> {
+            if (failed.get()) return;
+            try {
+                onQuestion.accept(question);
+            } catch (RuntimeException e) {
+                failed.set(true);
+                logger.info("Stopped sending streamed questions for '{}' to its client: {}", request.topic(), e.getMessage());
+            }
+        };
+    }
+
+    /**
+     * A large quiz goes through the same chunk fan-out, retries and de-duplication as
+     * {@link #generateQuiz(QuizRequest)}, but each chunk's new questions are sent on as soon
+     * as that chunk is done. The quiz keeps the order they were sent in, which is what the
+     * page numbers its answers by.
+     */
+    private Quiz streamInChunks(QuizRequest request, Consumer<Question> onQuestion, List<Question> allQuestions) {
+        long start = System.currentTimeMillis();
+        Set<String> sent = new HashSet<>();
+        List<Question> questions = new ArrayList<>();
+        generateInChunks(request, chunk -> {
+            synchronized (sent) {
+                for (Question question : chunk) {
+                    if (questions.size() == request.numberOfQuestions() || !sent.add(QuestionBank.normalize(question.getQuestion()))) {
+                        continue;
+                    }
+                    allQuestions.add(question);
+                    if (request.seen().contains(question.getQuestion())) {
+                        questionsSeen.increment();
+                    } else {
+                        questions.add(question);
+                        onQuestion.accept(question);
+                    }
+                }
             }
+        });
+
+        if (questions.isEmpty()) {
+            throw new RuntimeException("Every generated question for the quiz had been seen before.");
+        }
+        recordLatency(aiLatency, start);
+        Quiz quiz = new Quiz(request.topic(), request.difficulty(), request.type(), questions);
+        addToBank(request, quiz);
+        return quiz;
+    }
+
+    private Quiz doStreamQuiz(QuizRequest request, Consumer<Question> onQuestion, List<Question> allQuestions) {
+        long start = System.currentTimeMillis();
+        String topic = request.topic();
+        String type = request.type();
+        List<Question> questions = new ArrayList<>();
+        IncrementalQuestionParser parser = new IncrementalQuestionParser();
+        questionsRequested.increment(request.numberOfQuestions());
+        String prompt = buildPrompt(request);
+        promptTokens.record(PromptCompactor.estimateTokens(prompt));
+        String requestBody = geminiCodec.encodeRequest(prompt);
+        try {
+            // Not hedged: questions reach the browser as they arrive, so there is nothing to race
+            aiRouter.callWithoutHedging(provider -> {
+                provider.streamGenerateContent(requestBody, data -> {
+                    try {
+                        // Each SSE event carries a partial GenerateContentResponse with the next slice of text
+                        String text = geminiCodec.responseText(data);
+                        if (text == null) return;
+                        for (String questionJson : parser.feed(text)) {
+                            Question question = geminiCodec.parseQuestion(questionJson, type);
+                            if (question == null) continue;
+                            questionsParsed.increment();
+                            allQuestions.add(question);
+                            if (request.seen().contains(question.getQuestion())) {
+                                questionsSeen.increment();
+                            } else {
+                                if (questions.isEmpty()) {
+                                    logger.info("First streamed question for '{}' arrived after {}ms.", topic, System.currentTimeMillis() - start);
+                                }
+                                questions.add(question);
+                                onQuestion.accept(question);
+                            }
+                        }
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+                return null;
+            });
+        } catch (CircuitOpenException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Error during streaming AI quiz generation.", e);
+            throw new RuntimeException("Error communicating with or parsing response from AI service.", e);
         }
 
-        // ✅ REFINED: Update prompts to ask for an "explanation"
-        String prompt;
+        if (questions.isEmpty()) {
+            throw new RuntimeException("Failed to parse any questions from streamed AI response.");
+        }
+        recordLatency(aiLatency, start);
+        Quiz quiz = new Quiz(topic, request.difficulty(), type, questions);
+        addToBank(request, quiz);
+        return quiz;
+    }
+
+    static String documentContext(String fileText) {
+        // No escaping needed: GeminiCodec JSON-encodes the whole prompt
+        return "Based on the following document text: \n\"" + fileText + "\"\n\n";
+    }
+
+    static String buildPrompt(QuizRequest request) {
+        return buildPrompt(request, request.numberOfQuestions());
+    }
+
+    static String buildPrompt(QuizRequest request, int numberOfQuestions) {
+        String exclusionPrompt = "";
+        if (!request.exclusionSample().isEmpty()) {
+            exclusionPrompt = " CRITICAL: Do NOT repeat any of the following questions: " + request.exclusionSample().toString();
+        }
+        return buildPrompt(numberOfQuestions, request.context(), request.difficulty(), request.type(), exclusionPrompt);
+    }
+
+    // ✅ REFINED: Update prompts to ask for an "explanation"
+    private static String buildPrompt(int numberOfQuestions, String context, String difficulty, String type, String exclusionPrompt) {
         if ("Fill in the Blank".equals(type)) {
-            prompt = String.format(
+            return String.format(
                     "Generate a quiz with exactly %d 'Fill in the Blank' questions. The quiz is %s. Difficulty: '%s'. " +
                             "IMPORTANT: You must only output a JSON object. Do not add any other text or markdown. " +
                             "Follow this exact JSON structure: " +
@@ -84,7 +583,7 @@ public class AiQuizService {
                     numberOfQuestions, context, difficulty, exclusionPrompt
             );
         } else { // Default to Multiple Choice
-            prompt = String.format(
+            return String.format(
                     "Generate a quiz with exactly %d 'Multiple Choice' questions. The quiz is %s. Difficulty: '%s'. " +
                             "Output ONLY a strict JSON object (no markdown). " +
                             "The JSON structure MUST be: {\"questions\":[{\"question\":\"...\",\"options\":[\"A\",\"B\",\"C\",\"D\"],\"correctOptionIndex\":0, \"explanation\":\"A brief reason why this option is correct.\"}]}. " +
@@ -92,110 +591,98 @@ public class AiQuizService {
                     numberOfQuestions, context, difficulty, exclusionPrompt
             );
         }
-
-        return generateQuizFromPrompt(prompt, effectiveTopic, difficulty, type); // Pass effectiveTopic here too
-    }
-
-    private String extractTextFromFile(MultipartFile file) throws IOException {
-        String fileName = file.getOriginalFilename();
-        try (InputStream inputStream = file.getInputStream()) {
-            String text = "";
-            if (fileName != null) {
-                if (fileName.toLowerCase().endsWith(".pdf")) {
-                    // Use Loader.loadPDF with a byte array
-                    byte[] bytes = inputStream.readAllBytes();
-                    PDDocument document = Loader.loadPDF(bytes);
-                    text = new PDFTextStripper().getText(document);
-                    document.close();
-                } else if (fileName.toLowerCase().endsWith(".docx")) {
-                    text = new XWPFWordExtractor(new XWPFDocument(inputStream)).getText();
-                } else if (fileName.toLowerCase().endsWith(".txt")) {
-                    text = new String(inputStream.readAllBytes(), StandardCharsets.UTF_8);
-                } else {
-                    throw new IOException("Unsupported file type: " + fileName);
-                }
-            }
-            int maxLength = 25000;
-            return text.length() > maxLength ? text.substring(0, maxLength) : text;
-        }
     }
 
-    private Quiz generateQuizFromPrompt(String prompt, String topic, String difficulty, String type) {
+    /** Queues a background generation for the key once the bank drops below the low watermark. */
+    private void refillIfLow(QuestionBank.Key key, String topic, String difficulty, String type) {
+        if (questionBank.size(key) >= bankLowWatermark || !refillsInFlight.add(key)) {
+            return;
+        }
         try {
-            HttpHeaders headers = new HttpHeaders();
-            headers.setContentType(MediaType.APPLICATION_JSON);
-            // We must escape quotes and newlines in the *final* prompt string for the JSON payload
-            String escapedPrompt = prompt.replace("\"", "\\\"").replace("\n", "\\n");
-            String requestBody = "{ \"contents\": [{ \"parts\": [{ \"text\": \"" + escapedPrompt + "\" }] }] }";
-            HttpEntity<String> entity = new HttpEntity<>(requestBody, headers);
-            String fullApiUrl = geminiApiUrl + "?key=" + geminiApiKey;
-
-            ResponseEntity<String> response = restTemplate.postForEntity(fullApiUrl, entity, String.class);
-            if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
-                JsonNode root = objectMapper.readTree(response.getBody());
-
-                if (!root.has("candidates") || !root.get("candidates").isArray() || root.get("candidates").isEmpty()) {
-                    throw new RuntimeException("AI response was empty or invalid.");
+            bankRefillExecutor.execute(() -> {
+                try {
+                    String prompt = buildPrompt(bankRefillSize, "on the topic of '" + topic + "'", difficulty, type, "");
+                    Quiz refill = generateQuizFromPrompt(prompt, bankRefillSize, topic, difficulty, type);
+                    questionBank.add(key, refill.getQuestions());
+                    logger.info("Refilled question bank for {} with {} questions (now {}).", key, refill.getQuestions().size(), questionBank.size(key));
+                } catch (Exception e) {
+                    logger.warn("Background refill of question bank for {} failed.", key, e);
+                } finally {
+                    refillsInFlight.remove(key);
                 }
+            });
+        } catch (RejectedExecutionException e) {
+            refillsInFlight.remove(key);
+            logger.debug("Refill queue is full, skipping refill for {}.", key);
+        }
+    }
 
-                String rawText = root.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
-                logger.info("AI RAW RESPONSE: {}", rawText); // Log the raw response for debugging
-                String cleanedJsonText = rawText.replace("```json", "").replace("```", "").trim();
-
-                if (!cleanedJsonText.startsWith("{") || !cleanedJsonText.endsWith("}")) {
-                    logger.error("AI did not return a valid JSON object. Raw text: {}", cleanedJsonText);
-                    throw new IOException("AI did not return a valid JSON object.");
-                }
-
-                JsonNode quizJson = objectMapper.readTree(cleanedJsonText);
-                List<Question> questions = new ArrayList<>();
-
-                if (!quizJson.has("questions") || !quizJson.get("questions").isArray()) {
-                    logger.error("AI response JSON is missing 'questions' array. JSON: {}", cleanedJsonText);
-                    throw new IOException("AI response JSON is malformed.");
-                }
-
-                for (JsonNode qNode : quizJson.path("questions")) {
-                    if (!qNode.hasNonNull("question")) continue;
-
-                    Question question = new Question();
-                    question.setType(type);
-                    question.setQuestion(qNode.path("question").asText());
-                    // ✅ ADDED: Parse and set the explanation
-                    question.setExplanation(qNode.path("explanation").asText(null));
-
-
-                    if ("Fill in the Blank".equals(type)) {
-                        if (!qNode.hasNonNull("answer")) {
-                            logger.warn("Skipping Fill-in-the-Blank question due to missing 'answer' field: {}", qNode.toString());
-                            continue;
-                        }
-                        question.setAnswer(qNode.path("answer").asText());
-                    } else {
-                        if (!qNode.hasNonNull("options") || !qNode.get("options").isArray() || qNode.get("options").isEmpty() || !qNode.hasNonNull("correctOptionIndex")) {
-                            logger.warn("Skipping Multiple Choice question due to missing fields: {}", qNode.toString());
-                            continue;
-                        }
-                        List<String> options = new ArrayList<>();
-                        for (JsonNode opt : qNode.path("options")) {
-                            options.add(opt.asText());
-                        }
-                        question.setOptions(options);
-                        question.setCorrectOptionIndex(qNode.path("correctOptionIndex").asInt());
-                    }
-                    questions.add(question);
-                }
+    private void recordLatency(LatencyRecorder recorder, long start) {
+        recorder.record(System.currentTimeMillis() - start);
+        long total = bankLatency.getCount() + aiLatency.getCount();
+        if (total % 50 == 0) {
+            logger.info("Question bank hit rate {}% ({} hits / {} misses). Latency bank p50={}ms p99={}ms, AI p50={}ms p99={}ms.",
+                    String.format("%.1f", questionBank.getHitRate() * 100), questionBank.getHits(), questionBank.getMisses(),
+                    bankLatency.percentile(50), bankLatency.percentile(99), aiLatency.percentile(50), aiLatency.percentile(99));
+        }
+    }
 
-                if(questions.isEmpty()){
-                    logger.error("Failed to parse any valid questions from AI response. JSON: {}", cleanedJsonText);
-                    throw new RuntimeException("Failed to parse any questions from AI response.");
-                }
-                return new Quiz(topic, difficulty, type, questions);
-            } else { throw new RuntimeException("Gemini API call failed."); }
+    private Quiz generateQuizFromPrompt(String prompt, int numberOfQuestions, String topic, String difficulty, String type) {
+        questionsRequested.increment(numberOfQuestions);
+        promptTokens.record(PromptCompactor.estimateTokens(prompt));
+        String requestBody = geminiCodec.encodeRequest(prompt);
+        try {
+            // Parsed inside the attempt, so a hedged duplicate only wins with a usable quiz
+            Quiz quiz = aiRouter.call(provider -> parseQuiz(provider.generateContent(requestBody), topic, difficulty, type));
+            questionsParsed.increment(quiz.getQuestions().size());
+            return quiz;
+        } catch (CircuitOpenException e) {
+            throw e; // Callers fall back to a canned quiz instead of waiting on a dead endpoint
         } catch (Exception e) {
             logger.error("Error during AI quiz generation or parsing.", e);
             throw new RuntimeException("Error communicating with or parsing response from AI service.", e);
         }
     }
-}
 
+    private Quiz parseQuiz(String responseBody, String topic, String difficulty, String type) {
+        try {
+            String rawText = responseBody == null ? null : geminiCodec.responseText(responseBody);
+            if (rawText == null) {
+                throw new RuntimeException("AI response was empty or invalid.");
+            }
+            logger.debug("AI RAW RESPONSE: {}", rawText);
+
+            List<Question> questions = geminiCodec.parseQuestions(rawText, type);
+            if (questions.isEmpty()) {
+                logger.error("Failed to parse any valid questions from AI response. Raw text: {}", rawText);
+                throw new RuntimeException("Failed to parse any questions from AI response.");
+            }
+            return new Quiz(topic, difficulty, type, questions);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /** A canned one-question quiz for when the AI service can't be used. */
+    public Quiz createFallbackQuiz(String topic, String difficulty, String type) {
+        fallbacks.increment();
+        List<Question> fallbackQuestions = new ArrayList<>();
+        if ("Fill in the Blank".equals(type)) {
+            Question q = new Question();
+            q.setType("Fill in the Blank");
+            q.setQuestion("The capital of France is ____.");
+            q.setAnswer("Paris");
+            q.setExplanation("Paris is the capital and most populous city of France.");
+            fallbackQuestions.add(q);
+        } else {
+            Question q = new Question();
+            q.setType("Multiple Choice");
+            q.setQuestion("What does AI stand for?");
+            q.setOptions(Arrays.asList("Artificial Intelligence", "Automated Input", "None"));
+            q.setCorrectOptionIndex(0);
+            q.setExplanation("'AI' is the acronym for 'Artificial Intelligence'.");
+            fallbackQuestions.add(q);
+        }
+        return new Quiz(topic, difficulty, type, fallbackQuestions);
+    }
+}
@@ -0,0 +1,196 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Routes AI calls across the configured model endpoints and hedges slow ones. Available
+ * providers (circuit not open) are tried fastest first by their observed median latency;
+ * providers without enough samples yet keep their configured order ahead of the rest, so
+ * each one gets measured. A call that hasn't finished after the primary's observed p95
+ * gets a duplicate on the next provider (the same one if only one is configured), the
+ * first successful result wins and the other attempt is cancelled. A primary that fails
+ * outright is failed over at once instead of waiting for the hedge delay. Hedges are
+ * capped at a fraction of calls, so a slow endpoint can't double the load on the rest.
+ */
+public class AiRouter {
+
+    private static final Logger logger = LoggerFactory.getLogger(AiRouter.class);
+
+    public record Settings(boolean latencyAware,
+                           boolean hedging,
+                           Duration initialHedgeDelay,
+                           Duration minHedgeDelay,
+                           double maxHedgeRatio,
+                           int minSamples) {}
+
+    private final List<Route> routes;
+    private final Executor executor;
+    private final Settings settings;
+    private final MeterRegistry meterRegistry;
+    private final AtomicLong calls = new AtomicLong();
+    private final AtomicLong hedges = new AtomicLong();
+
+    /**
+     * @param providers in order of preference, the first being the default primary
+     * @param executor  runs the attempts while hedging, so the loser can be cancelled
+     */
+    public AiRouter(List<? extends AiProvider> providers, Executor executor, Settings settings, MeterRegistry meterRegistry) {
+        if (providers.isEmpty()) {
+            throw new IllegalArgumentException("At least one AI provider must be configured.");
+        }
+        this.routes = providers.stream().map(provider -> new Route(provider, new LatencyRecorder(200))).toList();
+        this.executor = executor;
+        this.settings = settings;
+        this.meterRegistry = meterRegistry;
+    }
+
+    public List<AiProvider> getProviders() {
+        return routes.stream().map(Route::provider).toList();
+    }
+
+    /**
+     * Runs {@code attempt} on the best provider, hedged as described above. The attempt must
+     * throw unless its result is usable (e.g. parsed into a valid quiz), so a fast but useless
+     * answer never beats a good one. If every attempt fails, the first failure is rethrown.
+     */
+    public <T> T call(Function<AiProvider, T> attempt) {
+        List<Route> order = route();
+        Route primary = order.get(0);
+        if (!settings.hedging()) {
+            return primary.run(attempt);
+        }
+        Route backup = order.size() > 1 ? order.get(1) : primary;
+        calls.incrementAndGet();
+
+        ExecutorCompletionService<T> completion = new ExecutorCompletionService<>(executor);
+        List<Future<T>> attempts = new ArrayList<>(2);
+        try {
+            attempts.add(completion.submit(() -> primary.run(attempt)));
+        } catch (RejectedExecutionException e) {
+            // Every hedging thread is busy: call directly, unhedged, rather than fail
+            count("rejected");
+            return primary.run(attempt);
+        }
+
+        long hedgeAt = System.nanoTime() + hedgeDelay(primary).toNanos();
+        boolean launched = false;
+        RuntimeException failure = null;
+        try {
+            while (true) {
+                Future<T> done = launched
+                        ? completion.take()
+                        : completion.poll(Math.max(0, hedgeAt - System.nanoTime()), TimeUnit.NANOSECONDS);
+                if (done != null) {
+                    try {
+                        T result = done.get();
+                        if (attempts.size() > 1) count(done == attempts.get(0) ? "lost" : "won");
+                        return result;
+                    } catch (ExecutionException e) {
+                        if (failure == null) failure = unwrap(e);
+                    }
+                    if (launched) {
+                        if (attempts.stream().allMatch(Future::isDone)) throw failure;
+                        continue;
+                    }
+                    // The primary failed before the hedge delay: fail over now, unless it would be the same endpoint again
+                    if (backup == primary) throw failure;
+                    count("failover");
+                } else if (!hedgeAllowed()) {
+                    count("skipped");
+                    launched = true; // Nothing more to launch; wait for the primary
+                    continue;
+                } else {
+                    hedges.incrementAndGet();
+                    count("launched");
+                }
+                launched = true;
+                try {
+                    attempts.add(completion.submit(() -> backup.run(attempt)));
+                    logger.debug("Hedging AI call on '{}' after '{}' {}.", backup.provider().getName(), primary.provider().getName(),
+                            done == null ? "was slow" : "failed");
+                } catch (RejectedExecutionException e) {
+                    count("rejected");
+                    if (done != null) throw failure;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new AiServiceException("Interrupted while waiting for the AI service.", false, "interrupted", e);
+        } finally {
+            // Interrupts whichever attempt is still running; the HTTP client gives up its request
+            attempts.forEach(future -> future.cancel(true));
+        }
+    }
+
+    /**
+     * Runs {@code attempt} once on the best provider, without hedging. For streamed calls,
+     * whose output reaches the user as it arrives and so can't be raced against a duplicate.
+     */
+    public <T> T callWithoutHedging(Function<AiProvider, T> attempt) {
+        return route().get(0).run(attempt);
+    }
+
+    // Available providers, best first; all unavailable fails fast like the circuit breaker would
+    private List<Route> route() {
+        List<Route> available = new ArrayList<>(routes.stream().filter(route -> route.provider().isAvailable()).toList());
+        if (available.isEmpty()) {
+            throw new CircuitOpenException(routes.get(0).provider().getName());
+        }
+        if (settings.latencyAware()) {
+            // Stable sort: unmeasured providers stay in configured order, ahead of the measured ones
+            available.sort(Comparator.comparingLong(route ->
+                    route.latency().getCount() < settings.minSamples() ? -1 : route.latency().percentile(50)));
+        }
+        meterRegistry.counter("ai.route", "provider", available.get(0).provider().getName()).increment();
+        return available;
+    }
+
+    private Duration hedgeDelay(Route primary) {
+        if (primary.latency().getCount() < settings.minSamples()) {
+            return settings.initialHedgeDelay();
+        }
+        Duration p95 = Duration.ofMillis(primary.latency().percentile(95));
+        return p95.compareTo(settings.minHedgeDelay()) < 0 ? settings.minHedgeDelay() : p95;
+    }
+
+    private boolean hedgeAllowed() {
+        return hedges.get() < settings.maxHedgeRatio() * calls.get();
+    }
+
+    // ai.hedge{outcome}: launched, won, lost, failover, skipped (over the hedge budget), rejected (executor full)
+    private void count(String outcome) {
+        meterRegistry.counter("ai.hedge", "outcome", outcome).increment();
+    }
+
+    private static RuntimeException unwrap(ExecutionException e) {
+        Throwable cause = e.getCause();
+        if (cause instanceof RuntimeException runtime) return runtime;
+        if (cause instanceof Error error) throw error;
+        return new AiServiceException("AI call failed.", false, "error", cause);
+    }
+
+    /** A provider and the latencies of its successful attempts. */
+    private record Route(AiProvider provider, LatencyRecorder latency) {
+        <T> T run(Function<AiProvider, T> attempt) {
+            long start = System.nanoTime();
+            T result = attempt.apply(provider);
+            latency.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+            return result;
+        }
+    }
+}
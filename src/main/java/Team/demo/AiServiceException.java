@@ -0,0 +1,32 @@
+package Team.demo;
+
+/**
+ * Thrown when a call to the AI service fails. Retryable failures (timeouts, 429, 5xx)
+ * are worth another attempt; the rest (bad request, bad key) are not. The outcome is a
+ * short label for the kind of failure, used to tag metrics.
+ */
+public class AiServiceException extends RuntimeException {
+
+    private final boolean retryable;
+    private final String outcome;
+
+    public AiServiceException(String message, boolean retryable, String outcome) {
+        super(message);
+        this.retryable = retryable;
+        this.outcome = outcome;
+    }
+
+    public AiServiceException(String message, boolean retryable, String outcome, Throwable cause) {
+        super(message, cause);
+        this.retryable = retryable;
+        this.outcome = outcome;
+    }
+
+    public boolean isRetryable() {
+        return retryable;
+    }
+
+    public String getOutcome() {
+        return outcome;
+    }
+}
@@ -1,8 +1,19 @@
 package Team.demo;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
 
 /**
  * This class holds application-wide configuration for beans.
@@ -11,15 +22,129 @@ import org.springframework.web.client.RestTemplate;
 @Configuration
 public class AppConfig {
 
+    private final Environment environment;
+
+    public AppConfig(Environment environment) {
+        this.environment = environment;
+    }
+
     /**
-     * ✅ This method creates a RestTemplate object and registers it as a bean
-     * in the Spring application context. Now, Spring can inject this bean
-     * into other classes, like AiQuizService.
+     * ✅ This method creates the router AiQuizService uses to talk to Gemini
+     * and registers it as a bean. It holds one client for gemini.api.url plus
+     * one per extra model in gemini.api.models ("name=url" pairs). Timeouts,
+     * retries and the circuit breakers are configured through gemini.client.*,
+     * routing and hedging through quiz.ai.*.
      *
-     * @return A new instance of RestTemplate.
+     * @return A latency-aware, hedging router over pooled, resilient clients.
+     */
+    @Bean
+    public AiRouter aiRouter(@Value("${gemini.api.url}") String apiUrl,
+                             @Value("${gemini.api.stream-url:}") String streamApiUrl,
+                             @Value("${gemini.api.key}") String apiKey,
+                             @Value("${gemini.api.models:}") List<String> models,
+                             @Value("${gemini.client.connect-timeout-ms:3000}") long connectTimeoutMs,
+                             @Value("${gemini.client.read-timeout-ms:30000}") long readTimeoutMs,
+                             @Value("${gemini.client.deadline-ms:60000}") long deadlineMs,
+                             @Value("${gemini.client.max-retries:2}") int maxRetries,
+                             @Value("${gemini.client.backoff-ms:500}") long backoffMs,
+                             @Value("${gemini.client.breaker.failure-threshold:5}") int failureThreshold,
+                             @Value("${gemini.client.breaker.open-ms:30000}") long openMs,
+                             @Value("${quiz.ai.routing.latency-aware:true}") boolean latencyAware,
+                             @Value("${quiz.ai.hedge.enabled:true}") boolean hedging,
+                             @Value("${quiz.ai.hedge.initial-delay-ms:10000}") long initialHedgeDelayMs,
+                             @Value("${quiz.ai.hedge.min-delay-ms:1000}") long minHedgeDelayMs,
+                             @Value("${quiz.ai.hedge.max-ratio:0.1}") double maxHedgeRatio,
+                             @Value("${quiz.ai.hedge.min-samples:20}") int minSamples,
+                             @Qualifier("aiHedgeExecutor") Executor hedgeExecutor,
+                             MeterRegistry meterRegistry) {
+        GeminiClient.Settings settings = new GeminiClient.Settings(
+                Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(readTimeoutMs), Duration.ofMillis(deadlineMs),
+                maxRetries, Duration.ofMillis(backoffMs), failureThreshold, Duration.ofMillis(openMs));
+        List<GeminiClient> clients = new ArrayList<>();
+        clients.add(new GeminiClient("gemini", apiUrl, streamApiUrl, apiKey, settings, meterRegistry));
+        for (String model : models) {
+            if (model.isBlank()) continue;
+            int equals = model.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("gemini.api.models entries look like name=url, got: " + model);
+            }
+            clients.add(new GeminiClient(model.substring(0, equals).trim(), model.substring(equals + 1).trim(), "", apiKey, settings, meterRegistry));
+        }
+        AiRouter.Settings routing = new AiRouter.Settings(latencyAware, hedging, Duration.ofMillis(initialHedgeDelayMs),
+                Duration.ofMillis(minHedgeDelayMs), maxHedgeRatio, minSamples);
+        return new AiRouter(clients, hedgeExecutor, routing, meterRegistry);
+    }
+
+    /**
+     * A small executor that tops up the question bank in the background,
+     * so refills never hold up the request that triggered them.
+     */
+    @Bean
+    public AsyncTaskExecutor bankRefillExecutor() {
+        return executor("bank-refill-", 2, 2, 50);
+    }
+
+    /**
+     * Runs streamed quiz generations, which hold their SSE connection open
+     * until the last question has been sent to the browser.
+     */
+    @Bean
+    public AsyncTaskExecutor quizStreamExecutor() {
+        return executor("quiz-stream-", 8, 32, 100);
+    }
+
+    /**
+     * Bounded pool for the chunks of large quizzes, so one big request
+     * can't open an unlimited number of calls to the AI service.
      */
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public AsyncTaskExecutor quizChunkExecutor() {
+        return executor("quiz-chunk-", 8, 8, 200);
+    }
+
+    /**
+     * Executor behind the asynchronous generation jobs. The queue is bounded
+     * so a burst is turned away with a clear error instead of piling up.
+     */
+    @Bean
+    public AsyncTaskExecutor quizJobExecutor(@Value("${quiz.jobs.threads:16}") int threads,
+                                             @Value("${quiz.jobs.queue-capacity:200}") int queueCapacity) {
+        return executor("quiz-job-", threads, threads, queueCapacity);
+    }
+
+    /**
+     * Runs speculative generations of users' next quizzes. There is no queue:
+     * when every thread is busy the prefetch is skipped, which caps the AI calls
+     * spent on quizzes nobody has asked for yet.
+     */
+    @Bean
+    public AsyncTaskExecutor quizPrefetchExecutor(@Value("${quiz.prefetch.max-concurrent:4}") int maxConcurrent) {
+        return executor("quiz-prefetch-", maxConcurrent, maxConcurrent, 0);
+    }
+
+    /**
+     * Runs AI calls while they may be hedged, so the slower of two duplicates can be
+     * cancelled. No queue: when it is full, calls go ahead on the caller's thread unhedged.
+     */
+    @Bean
+    public AsyncTaskExecutor aiHedgeExecutor(@Value("${quiz.ai.hedge.max-concurrent:64}") int maxConcurrent) {
+        return executor("ai-call-", maxConcurrent, maxConcurrent, 0);
+    }
+
+    /**
+     * A thread pool, or with spring.threads.virtual.enabled on Java 21+ a virtual thread
+     * per task under the same concurrency and queue limits.
+     */
+    private AsyncTaskExecutor executor(String threadNamePrefix, int corePoolSize, int maxPoolSize, int queueCapacity) {
+        if (Threading.VIRTUAL.isActive(environment)) {
+            return new BoundedVirtualThreadExecutor(threadNamePrefix, maxPoolSize, queueCapacity);
+        }
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(corePoolSize);
+        executor.setMaxPoolSize(maxPoolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix(threadNamePrefix);
+        executor.initialize();
+        return executor;
     }
 }
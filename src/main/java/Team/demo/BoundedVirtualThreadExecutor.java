@@ -0,0 +1,51 @@
+package Team.demo;
+
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Runs each task on its own virtual thread while keeping the limits of the thread pool it
+ * replaces: at most {@code maxConcurrency} tasks run at once, up to {@code queueCapacity}
+ * more wait (parked, which costs a virtual thread next to nothing), and anything beyond
+ * that is rejected just like a full pool queue would be. The limits matter because they
+ * bound how many calls we make to the AI service, not how many threads we can afford.
+ */
+public class BoundedVirtualThreadExecutor implements AsyncTaskExecutor {
+
+    private final VirtualThreadTaskExecutor virtualThreads;
+    private final Semaphore running;
+    private final Semaphore admitted;
+
+    public BoundedVirtualThreadExecutor(String threadNamePrefix, int maxConcurrency, int queueCapacity) {
+        this.virtualThreads = new VirtualThreadTaskExecutor(threadNamePrefix);
+        this.running = new Semaphore(maxConcurrency);
+        this.admitted = new Semaphore(maxConcurrency + queueCapacity);
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        if (!admitted.tryAcquire()) {
+            throw new RejectedExecutionException("Executor is at capacity.");
+        }
+        try {
+            virtualThreads.execute(() -> {
+                try {
+                    running.acquireUninterruptibly();
+                    try {
+                        task.run();
+                    } finally {
+                        running.release();
+                    }
+                } finally {
+                    admitted.release();
+                }
+            });
+        } catch (RuntimeException e) {
+            admitted.release();
+            throw e;
+        }
+    }
+}
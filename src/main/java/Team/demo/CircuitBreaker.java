@@ -0,0 +1,72 @@
+package Team.demo;
+
+import java.time.Duration;
+
+/**
+ * A minimal consecutive-failure circuit breaker. After {@code failureThreshold} failures
+ * in a row the circuit opens and calls are refused for {@code openDuration}; then a single
+ * probe call is let through, and its outcome either closes the circuit or re-opens it.
+ */
+public class CircuitBreaker {
+
+    public enum State { CLOSED, OPEN, HALF_OPEN }
+
+    private final int failureThreshold;
+    private final long openNanos;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private long probeStartedAt;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /** Returns true if a call may go ahead right now. */
+    public synchronized boolean tryAcquire() {
+        long now = System.nanoTime();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAt < openNanos) return false;
+                state = State.HALF_OPEN;
+                probeStartedAt = now;
+                return true;
+            default:
+                // Only one probe at a time, unless the last one never reported back
+                if (now - probeStartedAt < openNanos) return false;
+                probeStartedAt = now;
+                return true;
+        }
+    }
+
+    /** Whether {@link #tryAcquire()} would let a call through right now, without claiming the probe. */
+    public synchronized boolean isCallPermitted() {
+        long now = System.nanoTime();
+        return switch (state) {
+            case CLOSED -> true;
+            case OPEN -> now - openedAt >= openNanos;
+            case HALF_OPEN -> now - probeStartedAt >= openNanos;
+        };
+    }
+
+    public synchronized void recordSuccess() {
+        consecutiveFailures = 0;
+        state = State.CLOSED;
+    }
+
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+}
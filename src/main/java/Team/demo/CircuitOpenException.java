@@ -0,0 +1,9 @@
+package Team.demo;
+
+/** Thrown without calling the AI service at all while its circuit breaker is open. */
+public class CircuitOpenException extends AiServiceException {
+
+    public CircuitOpenException(String name) {
+        super("Circuit for AI endpoint '" + name + "' is open; failing fast.", false, "circuit_open");
+    }
+}
@@ -0,0 +1,134 @@
+package Team.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches text extracted from uploaded documents, keyed by the SHA-256 of the upload,
+ * so the same lecture notes uploaded by a whole class are only parsed once.
+ * A bounded in-memory tier sits in front of an optional on-disk tier.
+ */
+@Component
+public class DocumentTextCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(DocumentTextCache.class);
+
+    private final long maxChars;
+    private final Path diskDir;
+
+    // Access-ordered so the eldest entry is always the least recently used document
+    private final LinkedHashMap<String, Entry> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryChars;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong parseMillisSaved = new AtomicLong();
+
+    public DocumentTextCache(@Value("${quiz.extraction.cache.max-chars:20000000}") long maxChars,
+                             @Value("${quiz.extraction.cache.dir:}") String diskDir) throws IOException {
+        this.maxChars = maxChars;
+        if (diskDir == null || diskDir.isBlank()) {
+            this.diskDir = null;
+        } else {
+            this.diskDir = Files.createDirectories(Path.of(diskDir));
+        }
+    }
+
+    public Optional<String> get(String key) {
+        Entry entry;
+        synchronized (memory) {
+            entry = memory.get(key);
+        }
+        if (entry == null) {
+            entry = readFromDisk(key);
+            if (entry != null) {
+                putInMemory(key, entry);
+            }
+        }
+        if (entry == null) {
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        long saved = parseMillisSaved.addAndGet(entry.parseMillis());
+        logger.info("Document text cache hit for {} (skipped ~{}ms of parsing). Totals: {} hits, {} misses, {}ms saved.",
+                key, entry.parseMillis(), hits.get(), misses.get(), saved);
+        return Optional.of(entry.text());
+    }
+
+    public void put(String key, String text, long parseMillis) {
+        Entry entry = new Entry(text, parseMillis);
+        putInMemory(key, entry);
+        writeToDisk(key, entry);
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+    public long getParseMillisSaved() { return parseMillisSaved.get(); }
+
+    private void putInMemory(String key, Entry entry) {
+        synchronized (memory) {
+            Entry previous = memory.put(key, entry);
+            if (previous != null) memoryChars -= previous.text().length();
+            memoryChars += entry.text().length();
+            Iterator<Map.Entry<String, Entry>> eldest = memory.entrySet().iterator();
+            while (memoryChars > maxChars && eldest.hasNext()) {
+                memoryChars -= eldest.next().getValue().text().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    // Disk format: the parse time in millis on the first line, then the extracted text
+    private Entry readFromDisk(String key) {
+        if (diskDir == null) return null;
+        Path file = diskDir.resolve(key + ".txt");
+        if (!Files.exists(file)) return null;
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            long parseMillis = Long.parseLong(reader.readLine());
+            StringBuilder text = new StringBuilder();
+            char[] buffer = new char[8192];
+            int read;
+            while ((read = reader.read(buffer)) != -1) {
+                text.append(buffer, 0, read);
+            }
+            return new Entry(text.toString(), parseMillis);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Could not read cached document text {}.", file, e);
+            return null;
+        }
+    }
+
+    private void writeToDisk(String key, Entry entry) {
+        if (diskDir == null) return;
+        try {
+            // Write to a temp file first so readers never see a half-written entry
+            Path temp = Files.createTempFile(diskDir, key, ".tmp");
+            try (Writer writer = Files.newBufferedWriter(temp, StandardCharsets.UTF_8)) {
+                writer.write(Long.toString(entry.parseMillis()));
+                writer.write('\n');
+                writer.write(entry.text());
+            }
+            Files.move(temp, diskDir.resolve(key + ".txt"), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            logger.warn("Could not write document text for {} to the disk cache.", key, e);
+        }
+    }
+
+    private record Entry(String text, long parseMillis) {}
+}
@@ -0,0 +1,191 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.apache.pdfbox.Loader; // <-- Import Loader
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.text.PDFTextStripper;
+import org.apache.poi.openxml4j.exceptions.InvalidFormatException;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
+import org.apache.poi.xwpf.usermodel.IBodyElement;
+import org.apache.poi.xwpf.usermodel.XWPFDocument; // <-- Import XWPFDocument
+import org.apache.poi.xwpf.usermodel.XWPFParagraph;
+import org.apache.poi.xwpf.usermodel.XWPFTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Turns an uploaded PDF, DOCX or TXT file into plain text for the quiz prompt.
+ * The upload is spooled to a scratch file (hashing it on the way) instead of being
+ * read onto the heap, and extraction stops as soon as the character budget is full.
+ * Results are cached by content hash, so re-uploads of the same file skip parsing.
+ * Extraction time and upload size are published per file type.
+ */
+@Component
+public class DocumentTextExtractor {
+
+    private final DocumentTextCache cache;
+    private final int maxChars;
+    private final MeterRegistry meterRegistry;
+
+    public DocumentTextExtractor(DocumentTextCache cache, @Value("${quiz.extraction.max-chars:25000}") int maxChars,
+                                 MeterRegistry meterRegistry) {
+        this.cache = cache;
+        this.maxChars = maxChars;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** Text extracted from an upload, along with the SHA-256 of the upload's bytes. */
+    public record ExtractedDocument(String text, String sha256) {}
+
+    public ExtractedDocument extract(MultipartFile file) throws IOException {
+        String fileName = file.getOriginalFilename();
+        if (fileName == null) {
+            return new ExtractedDocument("", "");
+        }
+        String lowerName = fileName.toLowerCase();
+        if (!lowerName.endsWith(".pdf") && !lowerName.endsWith(".docx") && !lowerName.endsWith(".txt")) {
+            throw new IOException("Unsupported file type: " + fileName);
+        }
+
+        String fileType = lowerName.substring(lowerName.lastIndexOf('.') + 1);
+        DistributionSummary.builder("document.extraction.size").baseUnit("bytes").tag("type", fileType)
+                .description("Size of uploaded documents").register(meterRegistry).record(file.getSize());
+        long started = System.nanoTime();
+        boolean hit = false;
+        Path scratch = Files.createTempFile("quiz-upload-", ".tmp");
+        try {
+            String sha256 = spool(file, scratch);
+            // The budget is part of the key so cached text never outlives a change to it
+            String cacheKey = sha256 + "-" + maxChars;
+            Optional<String> cached = cache.get(cacheKey);
+            if (cached.isPresent()) {
+                hit = true;
+                return new ExtractedDocument(cached.get(), sha256);
+            }
+
+            long start = System.currentTimeMillis();
+            String text;
+            if (lowerName.endsWith(".pdf")) {
+                text = extractPdf(scratch);
+            } else if (lowerName.endsWith(".docx")) {
+                text = extractDocx(scratch);
+            } else {
+                text = extractTxt(scratch);
+            }
+            cache.put(cacheKey, text, System.currentTimeMillis() - start);
+            return new ExtractedDocument(text, sha256);
+        } finally {
+            Files.deleteIfExists(scratch);
+            Timer.builder("document.extraction").tags("type", fileType, "cache", hit ? "hit" : "miss")
+                    .description("Time to turn an upload into text").register(meterRegistry)
+                    .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    // Copies the upload to the scratch file and returns the SHA-256 of what was copied
+    private static String spool(MultipartFile file, Path scratch) throws IOException {
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available.", e);
+        }
+        try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+            Files.copy(in, scratch, StandardCopyOption.REPLACE_EXISTING);
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    // PDFBox reads the scratch file through a buffered random-access reader, one page at a time
+    private String extractPdf(Path scratch) throws IOException {
+        Budget budget = new Budget(maxChars);
+        try (PDDocument document = Loader.loadPDF(scratch.toFile())) {
+            PDFTextStripper stripper = new PDFTextStripper();
+            // A form feed after each page lets PromptCompactor spot running headers and footers
+            stripper.setPageEnd("\n\f");
+            for (int page = 1; page <= document.getNumberOfPages() && !budget.isFull(); page++) {
+                stripper.setStartPage(page);
+                stripper.setEndPage(page);
+                budget.append(stripper.getText(document));
+            }
+        }
+        return budget.toString();
+    }
+
+    private String extractDocx(Path scratch) throws IOException {
+        Budget budget = new Budget(maxChars);
+        try (OPCPackage pkg = OPCPackage.open(scratch.toFile(), PackageAccess.READ);
+             XWPFDocument document = new XWPFDocument(pkg)) {
+            for (IBodyElement element : document.getBodyElements()) {
+                if (element instanceof XWPFParagraph paragraph) {
+                    budget.append(paragraph.getText()).append("\n");
+                } else if (element instanceof XWPFTable table) {
+                    budget.append(table.getText()).append("\n");
+                }
+                if (budget.isFull()) break;
+            }
+        } catch (InvalidFormatException e) {
+            throw new IOException("Could not open DOCX file.", e);
+        }
+        return budget.toString();
+    }
+
+    private String extractTxt(Path scratch) throws IOException {
+        Budget budget = new Budget(maxChars);
+        // Unlike Files.newBufferedReader, replaces malformed input (e.g. a Latin-1 file) instead of throwing
+        try (Reader reader = new InputStreamReader(Files.newInputStream(scratch), StandardCharsets.UTF_8)) {
+            char[] buffer = new char[8192];
+            int read;
+            while (!budget.isFull() && (read = reader.read(buffer)) != -1) {
+                budget.append(new String(buffer, 0, read));
+            }
+        }
+        return budget.toString();
+    }
+
+    /** A StringBuilder that silently stops accepting text once it holds {@code limit} characters. */
+    private static final class Budget {
+        private final StringBuilder text = new StringBuilder();
+        private final int limit;
+
+        Budget(int limit) {
+            this.limit = limit;
+        }
+
+        Budget append(String chunk) {
+            int room = limit - text.length();
+            if (room > 0) {
+                text.append(chunk, 0, Math.min(room, chunk.length()));
+            }
+            return this;
+        }
+
+        boolean isFull() {
+            return text.length() >= limit;
+        }
+
+        @Override
+        public String toString() {
+            return text.toString();
+        }
+    }
+}
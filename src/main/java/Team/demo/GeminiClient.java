@@ -0,0 +1,257 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.net.http.HttpTimeoutException;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * The HTTP client for one Gemini model endpoint. It keeps pooled (HTTP/2 where the server
+ * supports it) connections, bounds every call by a deadline, retries 429/5xx and I/O errors
+ * with jittered backoff, and fails fast through a circuit breaker while the endpoint is down.
+ * Call latency (by outcome), retries and request/response sizes are published as metrics.
+ */
+public class GeminiClient implements AiProvider {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiClient.class);
+
+    // Closes streamed responses that outlive their deadline; the request timeout only covers the headers
+    private static final ScheduledThreadPoolExecutor STREAM_DEADLINES = new ScheduledThreadPoolExecutor(1, runnable -> {
+        Thread thread = new Thread(runnable, "gemini-stream-deadline");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    static {
+        STREAM_DEADLINES.setRemoveOnCancelPolicy(true);
+    }
+
+    private final String name;
+    private final URI generateUri;
+    private final URI streamUri;
+    private final String apiKey;
+    private final Settings settings;
+    private final HttpClient httpClient;
+    private final CircuitBreaker circuitBreaker;
+    private final MeterRegistry meterRegistry;
+    private final DistributionSummary requestSize;
+    private final DistributionSummary responseSize;
+
+    public record Settings(Duration connectTimeout,
+                           Duration readTimeout,
+                           Duration deadline,
+                           int maxRetries,
+                           Duration backoff,
+                           int failureThreshold,
+                           Duration openDuration) {}
+
+    /**
+     * @param apiUrl       the model's {@code :generateContent} URL
+     * @param streamApiUrl the model's {@code :streamGenerateContent} URL, or blank to derive it from {@code apiUrl}
+     */
+    public GeminiClient(String name, String apiUrl, String streamApiUrl, String apiKey, Settings settings, MeterRegistry meterRegistry) {
+        this.name = name;
+        this.generateUri = URI.create(apiUrl);
+        String streamUrl = streamApiUrl == null || streamApiUrl.isBlank()
+                ? apiUrl.replace(":generateContent", ":streamGenerateContent")
+                : streamApiUrl;
+        this.streamUri = URI.create(streamUrl + (streamUrl.contains("?") ? "&" : "?") + "alt=sse");
+        this.apiKey = apiKey;
+        this.settings = settings;
+        this.httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(settings.connectTimeout())
+                .build();
+        this.circuitBreaker = new CircuitBreaker(settings.failureThreshold(), settings.openDuration());
+        this.meterRegistry = meterRegistry;
+        this.requestSize = DistributionSummary.builder("gemini.request.size").baseUnit("chars").tag("client", name)
+                .description("Size of Gemini request bodies").register(meterRegistry);
+        this.responseSize = DistributionSummary.builder("gemini.response.size").baseUnit("chars").tag("client", name)
+                .description("Size of Gemini response bodies (summed over all events for streamed calls)").register(meterRegistry);
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean isAvailable() {
+        return circuitBreaker.isCallPermitted();
+    }
+
+    public CircuitBreaker.State getCircuitState() {
+        return circuitBreaker.getState();
+    }
+
+    /** Posts a GenerateContentRequest body and returns the response body. */
+    @Override
+    public String generateContent(String requestBody) {
+        String body = send("generate", generateUri, requestBody, HttpResponse.BodyHandlers.ofString()).body();
+        responseSize.record(body.length());
+        return body;
+    }
+
+    /**
+     * Posts to the streaming endpoint and hands the payload of every SSE {@code data:} line
+     * to {@code onData} as it arrives. Only the connection attempt is retried; once data
+     * has started flowing a failure is passed on to the caller. The deadline covers the
+     * whole stream: a response still open when it passes is closed and the call fails.
+     */
+    @Override
+    public void streamGenerateContent(String requestBody, Consumer<String> onData) {
+        long deadline = System.nanoTime() + settings.deadline().toNanos();
+        HttpResponse<Stream<String>> response = send("stream", streamUri, requestBody, HttpResponse.BodyHandlers.ofLines());
+        AtomicLong received = new AtomicLong();
+        AtomicBoolean expired = new AtomicBoolean();
+        try (Stream<String> lines = response.body()) {
+            ScheduledFuture<?> timeout = STREAM_DEADLINES.schedule(() -> {
+                expired.set(true);
+                lines.close();
+            }, deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+            try {
+                Iterator<String> iterator = lines.iterator();
+                while (true) {
+                    String line;
+                    try {
+                        if (!iterator.hasNext()) break;
+                        line = iterator.next();
+                    } catch (UncheckedIOException e) {
+                        // Reading failed (or the deadline closed the stream) after the headers were counted as a success
+                        circuitBreaker.recordFailure();
+                        throw streamFailure(expired.get(), e);
+                    }
+                    if (!line.startsWith("data:")) continue;
+                    String data = line.substring(5).trim();
+                    received.addAndGet(data.length());
+                    onData.accept(data);
+                }
+                if (expired.get()) {
+                    circuitBreaker.recordFailure(); // Cut off rather than finished
+                    throw streamFailure(true, null);
+                }
+            } finally {
+                timeout.cancel(false);
+            }
+        } finally {
+            responseSize.record(received.get());
+        }
+    }
+
+    private AiServiceException streamFailure(boolean expired, Throwable cause) {
+        return expired
+                ? new AiServiceException("Deadline exceeded streaming from AI endpoint '" + name + "'.", false, "deadline_exceeded", cause)
+                : new AiServiceException("I/O error streaming from AI endpoint '" + name + "'.", false, "io_error", cause);
+    }
+
+    // Times the whole call, retries included; for streamed calls until the response headers arrive
+    private <T> HttpResponse<T> send(String endpoint, URI uri, String requestBody, HttpResponse.BodyHandler<T> bodyHandler) {
+        requestSize.record(requestBody.length());
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            HttpResponse<T> response = send(uri, requestBody, bodyHandler);
+            outcome = "success";
+            return response;
+        } catch (AiServiceException e) {
+            outcome = e.getOutcome();
+            throw e;
+        } finally {
+            Timer.builder("gemini.call")
+                    .description("Gemini calls, retries included")
+                    .tags("client", name, "endpoint", endpoint, "outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry)
+                    .record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private <T> HttpResponse<T> send(URI uri, String requestBody, HttpResponse.BodyHandler<T> bodyHandler) {
+        long deadline = System.nanoTime() + settings.deadline().toNanos();
+        for (int attempt = 0; ; attempt++) {
+            if (!circuitBreaker.tryAcquire()) {
+                throw new CircuitOpenException(name);
+            }
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                throw new AiServiceException("Deadline exceeded calling AI endpoint '" + name + "'.", false, "deadline_exceeded");
+            }
+            HttpRequest request = HttpRequest.newBuilder(uri)
+                    .timeout(Duration.ofNanos(Math.min(settings.readTimeout().toNanos(), remaining)))
+                    .header("Content-Type", "application/json")
+                    .header("x-goog-api-key", apiKey)
+                    .POST(HttpRequest.BodyPublishers.ofString(requestBody))
+                    .build();
+
+            AiServiceException failure;
+            try {
+                HttpResponse<T> response = httpClient.send(request, bodyHandler);
+                int status = response.statusCode();
+                if (status == 200) {
+                    circuitBreaker.recordSuccess();
+                    return response;
+                }
+                discard(response);
+                boolean retryable = status == 429 || status >= 500;
+                if (retryable) {
+                    circuitBreaker.recordFailure();
+                } else {
+                    circuitBreaker.recordSuccess(); // A 4xx still means the endpoint is up
+                }
+                failure = new AiServiceException("AI endpoint '" + name + "' returned HTTP " + status + ".", retryable,
+                        status == 429 ? "rate_limited" : status >= 500 ? "server_error" : "client_error");
+            } catch (HttpTimeoutException e) {
+                circuitBreaker.recordFailure();
+                failure = new AiServiceException("AI endpoint '" + name + "' timed out.", true, "timeout", e);
+            } catch (IOException e) {
+                circuitBreaker.recordFailure();
+                failure = new AiServiceException("I/O error calling AI endpoint '" + name + "'.", true, "io_error", e);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new AiServiceException("Interrupted while calling AI endpoint '" + name + "'.", false, "interrupted", e);
+            }
+
+            if (!failure.isRetryable() || attempt >= settings.maxRetries()) {
+                throw failure;
+            }
+            // Full jitter: sleep somewhere between 0 and base * 2^attempt
+            long backoffMillis = ThreadLocalRandom.current().nextLong(settings.backoff().toMillis() * (1L << attempt) + 1);
+            if (System.nanoTime() + Duration.ofMillis(backoffMillis).toNanos() >= deadline) {
+                throw failure;
+            }
+            meterRegistry.counter("gemini.call.retries", "client", name, "reason", failure.getOutcome()).increment();
+            logger.warn("{} Retrying in {}ms (attempt {} of {}).", failure.getMessage(), backoffMillis, attempt + 2, settings.maxRetries() + 1);
+            try {
+                Thread.sleep(backoffMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw failure;
+            }
+        }
+    }
+
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof Stream<?> stream) {
+            stream.close();
+        }
+    }
+}
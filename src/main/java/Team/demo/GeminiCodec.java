@@ -0,0 +1,154 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Turns prompts into Gemini request bodies and Gemini responses into questions, using
+ * typed DTOs and Jackson's streaming parser. Quiz JSON is read in place from the model's
+ * text (fences and chatter around the object are skipped, not stripped into a new string)
+ * and each question is bound straight onto a {@link Question}.
+ */
+public class GeminiCodec {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeminiCodec.class);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final ObjectWriter requestWriter = objectMapper.writerFor(GenerateContentRequest.class);
+    private final ObjectReader responseReader = objectMapper.readerFor(GenerateContentResponse.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final ObjectReader questionReader = objectMapper.readerFor(Question.class)
+            .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    private final Counter invalidQuestions;
+
+    public GeminiCodec() {
+        this(Metrics.globalRegistry);
+    }
+
+    public GeminiCodec(MeterRegistry meterRegistry) {
+        this.invalidQuestions = Counter.builder("quiz.questions.skipped").tag("reason", "invalid")
+                .description("Generated questions dropped before reaching the user").register(meterRegistry);
+    }
+
+    // The subset of the GenerateContent API this app uses
+    record GenerateContentRequest(List<Content> contents) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Content(List<Part> parts) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Part(String text) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record Candidate(Content content) {}
+
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    record GenerateContentResponse(List<Candidate> candidates) {}
+
+    public String encodeRequest(String prompt) {
+        try {
+            return requestWriter.writeValueAsString(new GenerateContentRequest(List.of(new Content(List.of(new Part(prompt))))));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not encode Gemini request.", e);
+        }
+    }
+
+    /** The generated text of the first candidate, or null if the response has none. */
+    public String responseText(String responseBody) throws IOException {
+        GenerateContentResponse response = responseReader.readValue(responseBody);
+        if (response.candidates() == null || response.candidates().isEmpty()) {
+            return null;
+        }
+        Content content = response.candidates().get(0).content();
+        if (content == null || content.parts() == null || content.parts().isEmpty()) {
+            return null;
+        }
+        if (content.parts().size() == 1) {
+            return content.parts().get(0).text();
+        }
+        StringBuilder text = new StringBuilder();
+        for (Part part : content.parts()) {
+            if (part.text() != null) text.append(part.text());
+        }
+        return text.toString();
+    }
+
+    /**
+     * Reads the {"questions":[...]} object embedded in the model's text and returns the
+     * questions that can be graded as the given type.
+     *
+     * @throws IOException if the text holds no such object
+     */
+    public List<Question> parseQuestions(String text, String type) throws IOException {
+        int start = text.indexOf('{');
+        if (start < 0) {
+            throw new IOException("AI did not return a JSON object.");
+        }
+        StringReader reader = new StringReader(text);
+        reader.skip(start);
+        // The parser stops at the end of the root object, so a closing fence is never read
+        try (JsonParser parser = objectMapper.getFactory().createParser(reader)) {
+            parser.nextToken();
+            List<Question> questions = null;
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if ("questions".equals(field) && value == JsonToken.START_ARRAY) {
+                    questions = new ArrayList<>();
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        Question question = validate(questionReader.readValue(parser), type);
+                        if (question != null) questions.add(question);
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+            if (questions == null) {
+                throw new IOException("AI response JSON is missing the 'questions' array.");
+            }
+            return questions;
+        }
+    }
+
+    /** Parses one question object (as cut out by {@link IncrementalQuestionParser}), or returns null if it can't be graded. */
+    public Question parseQuestion(String json, String type) throws IOException {
+        return validate(questionReader.readValue(json), type);
+    }
+
+    private Question validate(Question question, String type) {
+        Question valid = validQuestion(question, type);
+        if (valid == null) invalidQuestions.increment();
+        return valid;
+    }
+
+    // The bank's rules, so a question that can't be graded never reaches a user either
+    private static Question validQuestion(Question question, String type) {
+        if (question == null) return null;
+        question.setType(type);
+        if ("Fill in the Blank".equals(type)) {
+            question.setOptions(null);
+        }
+        if (!QuestionBank.isValid(question)) {
+            logger.warn("Skipping {} question that can't be graded: {}", type, question.getQuestion());
+            return null;
+        }
+        return question;
+    }
+}
@@ -0,0 +1,68 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/** The default quiz store: encoded quizzes and pending requests in a map on this node. */
+@Component
+@ConditionalOnProperty(name = "quiz.store.backend", havingValue = "memory", matchIfMissing = true)
+public class InMemoryQuizStore implements QuizStore {
+
+    private final Duration ttl;
+    private final Map<String, Entry> quizzes = new ConcurrentHashMap<>();
+
+    public InMemoryQuizStore(@Value("${quiz.store.ttl-minutes:120}") long ttlMinutes) {
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    public void put(String quizId, String username, Quiz quiz) {
+        quizzes.put(quizId, new Entry(username, QuizCodec.encode(quiz), false, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public Optional<Quiz> get(String quizId, String username) {
+        Entry entry = quizId == null ? null : quizzes.get(quizId);
+        if (entry == null || entry.pending() || !entry.username().equals(username) || entry.expiresAt() < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(QuizCodec.decode(entry.data()));
+    }
+
+    @Override
+    public void remove(String quizId) {
+        quizzes.remove(quizId);
+    }
+
+    @Override
+    public void putPending(String streamId, String username, QuizRequest request) {
+        quizzes.put(streamId, new Entry(username, QuizCodec.encodeRequest(request), true, System.currentTimeMillis() + ttl.toMillis()));
+    }
+
+    @Override
+    public Optional<QuizRequest> takePending(String streamId, String username) {
+        Entry entry = streamId == null ? null : quizzes.get(streamId);
+        if (entry == null || !entry.pending() || !entry.username().equals(username) || !quizzes.remove(streamId, entry)
+                || entry.expiresAt() < System.currentTimeMillis()) {
+            return Optional.empty();
+        }
+        return Optional.of(QuizCodec.decodeRequest(entry.data()));
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${quiz.store.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        quizzes.values().removeIf(entry -> entry.expiresAt() < now);
+    }
+
+    private record Entry(String username, byte[] data, boolean pending, long expiresAt) {}
+}
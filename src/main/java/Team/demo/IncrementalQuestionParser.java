@@ -0,0 +1,63 @@
+package Team.demo;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Picks complete question objects out of a quiz JSON document that arrives in pieces,
+ * e.g. {"questions":[{...},{...}]} split across streamed chunks. Anything before the
+ * first '{' (such as a ```json fence) is ignored.
+ */
+public class IncrementalQuestionParser {
+
+    // Depth of the objects inside the "questions" array: root object (1) -> array (2) -> question (3)
+    private static final int QUESTION_DEPTH = 3;
+
+    private final StringBuilder current = new StringBuilder();
+    private int depth;
+    private boolean inString;
+    private boolean escaped;
+
+    /** Consumes the next chunk of text and returns the JSON of every question object it completed. */
+    public List<String> feed(CharSequence chunk) {
+        List<String> completed = new ArrayList<>();
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (depth >= QUESTION_DEPTH) {
+                current.append(c);
+            }
+            if (inString) {
+                if (escaped) {
+                    escaped = false;
+                } else if (c == '\\') {
+                    escaped = true;
+                } else if (c == '"') {
+                    inString = false;
+                }
+                continue;
+            }
+            if (depth == 0 && c != '{') {
+                continue; // Markdown fences or chatter around the JSON
+            }
+            switch (c) {
+                case '"' -> inString = true;
+                case '{', '[' -> {
+                    depth++;
+                    if (depth == QUESTION_DEPTH) {
+                        current.setLength(0);
+                        current.append(c);
+                    }
+                }
+                case '}', ']' -> {
+                    if (depth == QUESTION_DEPTH && c == '}') {
+                        completed.add(current.toString());
+                        current.setLength(0);
+                    }
+                    depth--;
+                }
+                default -> { }
+            }
+        }
+        return completed;
+    }
+}
@@ -0,0 +1,89 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * A quiz store in a shared database table, so every node sees every in-flight quiz and
+ * can start every pending stream.
+ * Quizzes are stored in their compact encoding; expired rows are deleted periodically.
+ * The table is the StoredQuiz entity's, created by Hibernate with the rest of the schema.
+ */
+@Component
+@ConditionalOnProperty(name = "quiz.store.backend", havingValue = "jdbc")
+public class JdbcQuizStore implements QuizStore {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final Duration ttl;
+
+    public JdbcQuizStore(JdbcTemplate jdbcTemplate, @Value("${quiz.store.ttl-minutes:120}") long ttlMinutes) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+    }
+
+    @Override
+    @Transactional
+    public void put(String quizId, String username, Quiz quiz) {
+        upsert(quizId, username, QuizCodec.encode(quiz), false);
+    }
+
+    @Override
+    public Optional<Quiz> get(String quizId, String username) {
+        return select(quizId, username, false).map(QuizCodec::decode);
+    }
+
+    @Override
+    public void remove(String quizId) {
+        jdbcTemplate.update("delete from quiz_store where quiz_id = ?", quizId);
+    }
+
+    @Override
+    @Transactional
+    public void putPending(String streamId, String username, QuizRequest request) {
+        upsert(streamId, username, QuizCodec.encodeRequest(request), true);
+    }
+
+    @Override
+    public Optional<QuizRequest> takePending(String streamId, String username) {
+        Optional<byte[]> data = select(streamId, username, true);
+        // Only the node whose delete removed the row starts the stream
+        if (data.isEmpty() || jdbcTemplate.update("delete from quiz_store where quiz_id = ? and pending = ?", streamId, true) == 0) {
+            return Optional.empty();
+        }
+        return data.map(QuizCodec::decodeRequest);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${quiz.store.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        jdbcTemplate.update("delete from quiz_store where expires_at < ?", System.currentTimeMillis());
+    }
+
+    // Update-else-insert, in the caller's transaction: portable SQL, and the row is never missing in between
+    private void upsert(String id, String username, byte[] data, boolean pending) {
+        long expiresAt = System.currentTimeMillis() + ttl.toMillis();
+        int updated = jdbcTemplate.update("update quiz_store set username = ?, data = ?, pending = ?, expires_at = ? where quiz_id = ?",
+                username, data, pending, expiresAt, id);
+        if (updated == 0) {
+            jdbcTemplate.update("insert into quiz_store (quiz_id, username, data, pending, expires_at) values (?, ?, ?, ?, ?)",
+                    id, username, data, pending, expiresAt);
+        }
+    }
+
+    private Optional<byte[]> select(String id, String username, boolean pending) {
+        if (id == null) return Optional.empty();
+        List<byte[]> rows = jdbcTemplate.query(
+                "select data from quiz_store where quiz_id = ? and username = ? and pending = ? and expires_at >= ?",
+                (rs, rowNum) -> rs.getBytes(1), id, username, pending, System.currentTimeMillis());
+        return rows.stream().findFirst();
+    }
+}
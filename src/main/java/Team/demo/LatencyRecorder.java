@@ -0,0 +1,39 @@
+package Team.demo;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the most recent latency samples in a fixed ring buffer so percentiles
+ * can be logged without holding on to every measurement.
+ */
+public class LatencyRecorder {
+
+    private final long[] samples;
+    private int next;
+    private int size;
+    private long count;
+
+    public LatencyRecorder(int capacity) {
+        this.samples = new long[capacity];
+    }
+
+    public synchronized void record(long millis) {
+        samples[next] = millis;
+        next = (next + 1) % samples.length;
+        if (size < samples.length) size++;
+        count++;
+    }
+
+    public synchronized long getCount() {
+        return count;
+    }
+
+    /** Returns the given percentile (0-100) of the retained samples, or 0 if there are none. */
+    public synchronized long percentile(double percentile) {
+        if (size == 0) return 0;
+        long[] sorted = Arrays.copyOf(samples, size);
+        Arrays.sort(sorted);
+        int index = (int) Math.ceil(percentile / 100.0 * size) - 1;
+        return sorted[Math.max(0, Math.min(index, size - 1))];
+    }
+}
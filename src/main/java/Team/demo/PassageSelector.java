@@ -0,0 +1,167 @@
+package Team.demo;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Picks the parts of a long document that go into the quiz prompt. The text is cut into
+ * passages and ranked against the topic with BM25 over a small in-process inverted index;
+ * without a usable topic, passages are spread evenly across the whole document. Either way
+ * the result stays within a token budget and keeps the original document order.
+ */
+@Component
+public class PassageSelector {
+
+    private static final Logger logger = LoggerFactory.getLogger(PassageSelector.class);
+
+    // Standard BM25 tuning constants
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+    private static final int CHARS_PER_TOKEN = 4;
+
+    private static final Set<String> STOPWORDS = Set.of(
+            "a", "an", "and", "are", "as", "at", "be", "by", "for", "from", "in", "into", "is", "it",
+            "of", "on", "or", "that", "the", "this", "to", "was", "were", "with", "pdf", "docx", "txt");
+
+    private final int passageChars;
+
+    public PassageSelector(@Value("${quiz.context.passage-chars:800}") int passageChars) {
+        this.passageChars = passageChars;
+    }
+
+    /** Returns the selected text, or the whole text if it already fits the budget. */
+    public String select(String text, String topic, int tokenBudget) {
+        int budgetChars = tokenBudget * CHARS_PER_TOKEN;
+        if (text.length() <= budgetChars) {
+            return text;
+        }
+
+        List<String> passages = split(text);
+        List<List<String>> passageTerms = passages.stream().map(PassageSelector::tokenize).toList();
+        List<String> queryTerms = topic == null ? List.of() : tokenize(topic);
+        double[] scores = bm25(passageTerms, queryTerms);
+
+        List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < passages.size(); i++) order.add(i);
+        boolean relevant = false;
+        for (double score : scores) relevant |= score > 0;
+        if (relevant) {
+            order.sort(Comparator.comparingDouble((Integer i) -> scores[i]).reversed());
+        } else {
+            order = spread(passages.size(), passages.isEmpty() ? 0 : Math.max(1, budgetChars / passageChars));
+        }
+
+        TreeSet<Integer> chosen = new TreeSet<>();
+        int used = 0;
+        for (int index : order) {
+            int length = passages.get(index).length();
+            if (used + length > budgetChars) continue;
+            chosen.add(index);
+            used += length;
+        }
+
+        StringBuilder selected = new StringBuilder(used + chosen.size() * 8);
+        int previous = -1;
+        for (int index : chosen) {
+            if (selected.length() > 0) {
+                selected.append(index == previous + 1 ? "\n\n" : "\n\n[...]\n\n");
+            }
+            selected.append(passages.get(index));
+            previous = index;
+        }
+        logger.info("Selected {} of {} passages ({} of {} chars, by {}) for topic '{}'.",
+                chosen.size(), passages.size(), selected.length(), text.length(), relevant ? "relevance" : "spread", topic);
+        return selected.toString();
+    }
+
+    /** Groups paragraphs into passages of roughly {@code passageChars}, splitting long paragraphs on whitespace. */
+    List<String> split(String text) {
+        List<String> passages = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        for (String paragraph : text.split("\\n\\s*\\n")) {
+            String trimmed = paragraph.trim();
+            while (trimmed.length() > passageChars) {
+                int cut = trimmed.lastIndexOf(' ', passageChars);
+                if (cut <= 0) cut = passageChars;
+                flush(passages, current);
+                passages.add(trimmed.substring(0, cut).trim());
+                trimmed = trimmed.substring(cut).trim();
+            }
+            if (trimmed.isEmpty()) continue;
+            if (current.length() + trimmed.length() > passageChars) {
+                flush(passages, current);
+            }
+            if (current.length() > 0) current.append("\n\n");
+            current.append(trimmed);
+        }
+        flush(passages, current);
+        return passages;
+    }
+
+    private static void flush(List<String> passages, StringBuilder current) {
+        if (current.length() > 0) {
+            passages.add(current.toString());
+            current.setLength(0);
+        }
+    }
+
+    private static double[] bm25(List<List<String>> passageTerms, List<String> queryTerms) {
+        double[] scores = new double[passageTerms.size()];
+        if (queryTerms.isEmpty() || passageTerms.isEmpty()) {
+            return scores;
+        }
+        // Inverted index: term -> (passage -> term frequency)
+        Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+        long totalLength = 0;
+        for (int i = 0; i < passageTerms.size(); i++) {
+            totalLength += passageTerms.get(i).size();
+            for (String term : passageTerms.get(i)) {
+                postings.computeIfAbsent(term, t -> new HashMap<>()).merge(i, 1, Integer::sum);
+            }
+        }
+        double averageLength = Math.max(1.0, (double) totalLength / passageTerms.size());
+        int n = passageTerms.size();
+        for (String term : new TreeSet<>(queryTerms)) {
+            Map<Integer, Integer> postingList = postings.get(term);
+            if (postingList == null) continue;
+            double idf = Math.log(1 + (n - postingList.size() + 0.5) / (postingList.size() + 0.5));
+            for (Map.Entry<Integer, Integer> posting : postingList.entrySet()) {
+                int tf = posting.getValue();
+                double lengthNorm = 1 - B + B * passageTerms.get(posting.getKey()).size() / averageLength;
+                scores[posting.getKey()] += idf * tf * (K1 + 1) / (tf + K1 * lengthNorm);
+            }
+        }
+        return scores;
+    }
+
+    // Evenly spaced passage indexes, so the prompt samples the beginning, middle and end
+    private static List<Integer> spread(int passageCount, int wanted) {
+        List<Integer> order = new ArrayList<>();
+        int count = Math.min(passageCount, wanted);
+        for (int i = 0; i < count; i++) {
+            order.add((int) ((long) i * passageCount / count));
+        }
+        return order;
+    }
+
+    static List<String> tokenize(String text) {
+        List<String> terms = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{N}]+")) {
+            if (token.length() > 1 && !STOPWORDS.contains(token)) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+}
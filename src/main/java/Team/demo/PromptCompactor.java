@@ -0,0 +1,199 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Shrinks extracted document text before it goes into a prompt. Lines that repeat on most
+ * pages (running headers and footers, with page numbers ignored) and bare page numbers at
+ * the top or bottom of a page are dropped, words hyphenated across a line break are put
+ * back together, and whitespace runs collapsed.
+ * Token counts are estimated locally, close enough to budget a prompt without calling
+ * the model's tokenizer.
+ */
+@Component
+public class PromptCompactor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PromptCompactor.class);
+
+    private static final Pattern PAGE_NUMBER = Pattern.compile("(?i)(page\\s*)?[-–]?\\s*\\d{1,4}\\s*[-–]?(\\s*(of|/)\\s*\\d{1,4})?");
+    private static final Pattern HYPHEN_BREAK = Pattern.compile("(\\p{L}+)-\\n(\\p{Ll}+)");
+    private static final Pattern WORD = Pattern.compile("\\p{L}+");
+    private static final Pattern SPACE_RUN = Pattern.compile("[ \\t\\x0B\\u00A0]+");
+    private static final Pattern BLANK_LINES = Pattern.compile("\\n{3,}");
+    private static final int MAX_BOILERPLATE_LINE = 120;
+
+    private final int minPages;
+    private final DistributionSummary bytesSaved;
+    private final DistributionSummary tokensSaved;
+
+    public PromptCompactor(@Value("${quiz.prompt.boilerplate-min-pages:3}") int minPages, MeterRegistry meterRegistry) {
+        this.minPages = minPages;
+        this.bytesSaved = DistributionSummary.builder("quiz.prompt.compaction.saved.bytes").baseUnit("bytes")
+                .description("Document bytes removed from a prompt by compaction").register(meterRegistry);
+        this.tokensSaved = DistributionSummary.builder("quiz.prompt.compaction.saved.tokens").baseUnit("tokens")
+                .description("Estimated document tokens removed from a prompt by compaction").register(meterRegistry);
+    }
+
+    /** Compacts the text; pages are separated by form feeds, as the PDF extractor writes them. */
+    public String compact(String text) {
+        String[] pages = text.split("\f", -1);
+        Set<String> boilerplate = repeatedLines(pages);
+
+        StringBuilder compacted = new StringBuilder(text.length());
+        for (String page : pages) {
+            List<String> lines = new ArrayList<>();
+            for (String line : page.split("\n", -1)) {
+                String trimmed = SPACE_RUN.matcher(line).replaceAll(" ").strip();
+                if (trimmed.isEmpty() || !boilerplate.contains(shape(trimmed))) {
+                    lines.add(trimmed);
+                }
+            }
+            // Without page breaks a number on its own line is content (a year, a list, a table cell)
+            if (pages.length > 1) {
+                dropPageNumber(lines, 0);
+                dropPageNumber(lines, lines.size() - 1);
+            }
+            lines.forEach(line -> compacted.append(line).append('\n'));
+        }
+        String result = joinHyphenated(compacted.toString());
+        result = BLANK_LINES.matcher(result).replaceAll("\n\n").strip();
+
+        int bytesBefore = text.getBytes(StandardCharsets.UTF_8).length;
+        int bytesAfter = result.getBytes(StandardCharsets.UTF_8).length;
+        int tokensBefore = estimateTokens(text);
+        int tokensAfter = estimateTokens(result);
+        bytesSaved.record(bytesBefore - bytesAfter);
+        tokensSaved.record(tokensBefore - tokensAfter);
+        logger.info("Compacted document text from {} to {} bytes (~{} to ~{} tokens, {} boilerplate lines).",
+                bytesBefore, bytesAfter, tokensBefore, tokensAfter, boilerplate.size());
+        return result;
+    }
+
+    /** Cuts the text at a paragraph or sentence boundary so it fits the token budget (empty if the budget is 0 or less). */
+    public String fit(String text, int tokenBudget) {
+        if (tokenBudget <= 0) return "";
+        int tokens = estimateTokens(text);
+        while (tokens > tokenBudget && !text.isEmpty()) {
+            int limit = (int) ((long) text.length() * tokenBudget / tokens * 95 / 100);
+            int cut = text.lastIndexOf("\n\n", limit);
+            if (cut < limit / 2) cut = text.lastIndexOf(". ", limit) + 1;
+            if (cut < limit / 2) cut = limit;
+            text = text.substring(0, cut).strip();
+            tokens = estimateTokens(text);
+        }
+        return text;
+    }
+
+    /** Drops the last (oldest) entries until the list fits the token budget. */
+    public List<String> fit(List<String> texts, int tokenBudget) {
+        int tokens = 0;
+        for (int i = 0; i < texts.size(); i++) {
+            tokens += estimateTokens(texts.get(i));
+            if (tokens > tokenBudget) return texts.subList(0, i);
+        }
+        return texts;
+    }
+
+    /**
+     * Estimated model tokens: every run of letters and digits costs one token per four
+     * characters (rounded up) and every other non-space character costs one.
+     */
+    public static int estimateTokens(CharSequence text) {
+        int tokens = 0;
+        int run = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                run++;
+                continue;
+            }
+            tokens += (run + 3) / 4;
+            run = 0;
+            if (!Character.isWhitespace(c)) tokens++;
+        }
+        return tokens + (run + 3) / 4;
+    }
+
+    // Blanks the first (from 0) or last (from the end) non-empty line if it is a bare page number
+    private static void dropPageNumber(List<String> lines, int from) {
+        int step = from == 0 ? 1 : -1;
+        for (int i = from; i >= 0 && i < lines.size(); i += step) {
+            if (lines.get(i).isEmpty()) continue;
+            if (PAGE_NUMBER.matcher(lines.get(i)).matches()) lines.set(i, "");
+            return;
+        }
+    }
+
+    /**
+     * Rejoins words broken across lines. A line-end hyphen is usually a typesetting break
+     * ("chloro-\nplast"), but can be a compound ("well-\nknown"), and there is no dictionary to
+     * tell them apart. The document is used instead: the halves are joined when the joined
+     * word occurs elsewhere in it or either half doesn't, and the hyphen stays when both halves
+     * occur as words of their own. Guessing wrong costs a token, not meaning.
+     */
+    private static String joinHyphenated(String text) {
+        Matcher breaks = HYPHEN_BREAK.matcher(text);
+        if (!breaks.find()) {
+            return text;
+        }
+        // Words of the document other than the broken ones
+        Set<String> words = new HashSet<>();
+        Matcher word = WORD.matcher(breaks.replaceAll(" "));
+        while (word.find()) {
+            words.add(word.group().toLowerCase(Locale.ROOT));
+        }
+        return breaks.reset().replaceAll(match -> {
+            String head = match.group(1);
+            String tail = match.group(2);
+            String joined = (head + tail).toLowerCase(Locale.ROOT);
+            boolean compound = !words.contains(joined)
+                    && words.contains(head.toLowerCase(Locale.ROOT)) && words.contains(tail.toLowerCase(Locale.ROOT));
+            return Matcher.quoteReplacement(compound ? head + "-" + tail : head + tail);
+        });
+    }
+
+    // Short lines that occur on at least half of the pages (and on minPages of them)
+    private Set<String> repeatedLines(String[] pages) {
+        if (pages.length < minPages) {
+            return Set.of();
+        }
+        Map<String, Integer> pagesPerLine = new HashMap<>();
+        for (String page : pages) {
+            Set<String> shapes = new HashSet<>();
+            for (String line : page.split("\n")) {
+                String trimmed = SPACE_RUN.matcher(line).replaceAll(" ").strip();
+                if (!trimmed.isEmpty() && trimmed.length() <= MAX_BOILERPLATE_LINE) {
+                    shapes.add(shape(trimmed));
+                }
+            }
+            shapes.forEach(shape -> pagesPerLine.merge(shape, 1, Integer::sum));
+        }
+        int threshold = Math.max(minPages, (pages.length + 1) / 2);
+        Set<String> repeated = new HashSet<>();
+        pagesPerLine.forEach((shape, count) -> {
+            if (count >= threshold) repeated.add(shape);
+        });
+        return repeated;
+    }
+
+    // Digits don't count, so "Page 3 of 12" on one page matches "Page 4 of 12" on the next
+    private static String shape(String line) {
+        return line.toLowerCase(Locale.ROOT).replaceAll("\\d+", "#");
+    }
+}
@@ -0,0 +1,159 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * A shared bank of already generated, validated questions keyed by (topic, difficulty, type).
+ * Popular topics can be served straight from here instead of waiting on the AI service.
+ * Each entry expires after a TTL, each key holds a bounded number of questions, and the
+ * least recently used keys are dropped once the bank holds too many topics.
+ */
+@Component
+public class QuestionBank {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionBank.class);
+
+    private final Duration ttl;
+    private final int maxKeys;
+    private final int maxQuestionsPerKey;
+
+    // Access-ordered so the eldest entry is always the least recently used key
+    private final LinkedHashMap<Key, Deque<Entry>> bank = new LinkedHashMap<>(16, 0.75f, true);
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public QuestionBank(@Value("${quiz.bank.ttl-minutes:60}") long ttlMinutes,
+                        @Value("${quiz.bank.max-topics:500}") int maxKeys,
+                        @Value("${quiz.bank.max-questions-per-topic:100}") int maxQuestionsPerKey) {
+        this.ttl = Duration.ofMinutes(ttlMinutes);
+        this.maxKeys = maxKeys;
+        this.maxQuestionsPerKey = maxQuestionsPerKey;
+    }
+
+    public static Key key(String topic, String difficulty, String type) {
+        return new Key(normalize(topic), normalize(difficulty), normalize(type));
+    }
+
+    /**
+     * Removes and returns {@code count} fresh questions that pass the filter, or an empty list
+     * if the bank can't fill the whole quiz. Nothing is removed on a miss.
+     */
+    public List<Question> take(Key key, int count, Predicate<Question> filter) {
+        synchronized (bank) {
+            Deque<Entry> entries = bank.get(key);
+            if (entries != null) {
+                evictExpired(entries);
+                List<Entry> picked = new ArrayList<>(count);
+                for (Entry entry : entries) {
+                    if (filter.test(entry.question())) {
+                        picked.add(entry);
+                        if (picked.size() == count) break;
+                    }
+                }
+                if (picked.size() == count) {
+                    entries.removeAll(picked);
+                    hits.incrementAndGet();
+                    return picked.stream().map(Entry::question).toList();
+                }
+            }
+        }
+        misses.incrementAndGet();
+        return Collections.emptyList();
+    }
+
+    /** Adds the valid questions to the bank, skipping duplicates of questions it already holds. */
+    public void add(Key key, List<Question> questions) {
+        Instant now = Instant.now();
+        synchronized (bank) {
+            Deque<Entry> entries = bank.computeIfAbsent(key, k -> new ArrayDeque<>());
+            evictExpired(entries);
+            for (Question question : questions) {
+                if (!isValid(question) || contains(entries, question)) continue;
+                if (entries.size() >= maxQuestionsPerKey) {
+                    entries.pollFirst(); // Drop the oldest question to make room
+                }
+                entries.addLast(new Entry(question, now.plus(ttl)));
+            }
+            while (bank.size() > maxKeys) {
+                Iterator<Key> eldest = bank.keySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    public int size(Key key) {
+        synchronized (bank) {
+            Deque<Entry> entries = bank.get(key);
+            if (entries == null) return 0;
+            evictExpired(entries);
+            return entries.size();
+        }
+    }
+
+    public long getHits() { return hits.get(); }
+    public long getMisses() { return misses.get(); }
+
+    public double getHitRate() {
+        long total = hits.get() + misses.get();
+        return total == 0 ? 0.0 : (double) hits.get() / total;
+    }
+
+    /**
+     * Only questions that could be graded correctly are allowed into the bank. GeminiCodec
+     * applies the same check to every parsed question.
+     */
+    static boolean isValid(Question q) {
+        if (q == null || q.getQuestion() == null || q.getQuestion().isBlank()) return false;
+        if ("Fill in the Blank".equals(q.getType())) {
+            return q.getAnswer() != null && !q.getAnswer().isBlank() && q.getQuestion().contains("____");
+        }
+        return q.getOptions() != null && q.getOptions().size() >= 2
+                && q.getCorrectOptionIndex() >= 0 && q.getCorrectOptionIndex() < q.getOptions().size();
+    }
+
+    private void evictExpired(Deque<Entry> entries) {
+        Instant now = Instant.now();
+        int before = entries.size();
+        entries.removeIf(entry -> entry.expiresAt().isBefore(now));
+        if (entries.size() < before) {
+            logger.debug("Evicted {} expired questions from the question bank.", before - entries.size());
+        }
+    }
+
+    private static boolean contains(Deque<Entry> entries, Question question) {
+        String text = normalize(question.getQuestion());
+        for (Entry entry : entries) {
+            if (Objects.equals(text, normalize(entry.question().getQuestion()))) return true;
+        }
+        return false;
+    }
+
+    static String normalize(String value) {
+        return value == null ? "" : value.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    public record Key(String topic, String difficulty, String type) {}
+
+    private record Entry(Question question, Instant expiresAt) {}
+}
@@ -0,0 +1,28 @@
+package Team.demo;
+
+import Team.demo.model.QuestionFingerprint;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.List;
+
+public interface QuestionFingerprintRepository extends JpaRepository<QuestionFingerprint, Long> {
+
+    // Only the columns needed to match new questions, most recent first
+    interface FingerprintView {
+        long getTextHash();
+        byte[] getMinHash();
+    }
+
+    @Query("select f.textHash as textHash, f.minHash as minHash from QuestionFingerprint f " +
+            "where f.user.username = :username and f.topicKey = :topicKey order by f.createdAt desc")
+    List<FingerprintView> findFingerprints(@Param("username") String username, @Param("topicKey") String topicKey, Pageable pageable);
+
+    @Query("select f.questionText from QuestionFingerprint f " +
+            "where f.user.username = :username and f.topicKey = :topicKey order by f.createdAt desc")
+    List<String> findRecentQuestionTexts(@Param("username") String username, @Param("topicKey") String topicKey, Pageable pageable);
+
+    @Query("select distinct f.topicKey from QuestionFingerprint f order by f.topicKey")
+    List<String> findTopicKeys();
+}
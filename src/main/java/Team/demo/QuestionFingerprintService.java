@@ -0,0 +1,238 @@
+package Team.demo;
+
+import Team.demo.model.QuestionFingerprint;
+import Team.demo.model.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+/**
+ * Remembers which questions each user has seen per topic, so repeats can be filtered out
+ * locally instead of pasting the user's whole history into the prompt. Exact repeats are
+ * caught by a hash of the normalized text, rewordings by a MinHash over character shingles.
+ */
+@Service
+public class QuestionFingerprintService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuestionFingerprintService.class);
+
+    private static final int SIGNATURE_SIZE = 32;
+    private static final int SHINGLE_LENGTH = 4;
+    // Coefficients for the MinHash permutations h(x) = (a * x + b) mod p
+    private static final long PRIME = 2_147_483_647L;
+    private static final long[] A = new long[SIGNATURE_SIZE];
+    private static final long[] B = new long[SIGNATURE_SIZE];
+
+    static {
+        Random random = new Random(42); // Fixed seed: stored signatures must stay comparable
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            A[i] = 1 + random.nextInt(Integer.MAX_VALUE - 1);
+            B[i] = random.nextInt(Integer.MAX_VALUE);
+        }
+    }
+
+    private final QuestionFingerprintRepository fingerprintRepository;
+    private final QuizResultRepository quizResultRepository;
+    private final UserRepository userRepository;
+    private final TopicIndex topicIndex;
+
+    @Value("${quiz.fingerprints.max-compare:1000}")
+    private int maxCompare;
+    @Value("${quiz.fingerprints.prompt-sample:15}")
+    private int promptSample;
+    @Value("${quiz.fingerprints.similarity-threshold:0.7}")
+    private double similarityThreshold;
+
+    public QuestionFingerprintService(QuestionFingerprintRepository fingerprintRepository, QuizResultRepository quizResultRepository,
+                                      UserRepository userRepository, TopicIndex topicIndex) {
+        this.fingerprintRepository = fingerprintRepository;
+        this.quizResultRepository = quizResultRepository;
+        this.userRepository = userRepository;
+        this.topicIndex = topicIndex;
+    }
+
+    /** Loads the most recent fingerprints the user has for the topic. */
+    public SeenQuestions load(String username, String topic) {
+        if (username == null || topic == null || topic.isBlank()) {
+            return SeenQuestions.EMPTY;
+        }
+        List<QuestionFingerprintRepository.FingerprintView> views =
+                fingerprintRepository.findFingerprints(username, topicKey(topic), PageRequest.of(0, maxCompare));
+        Set<Long> hashes = new HashSet<>();
+        List<int[]> signatures = new ArrayList<>(views.size());
+        for (QuestionFingerprintRepository.FingerprintView view : views) {
+            hashes.add(view.getTextHash());
+            if (view.getMinHash() != null) {
+                signatures.add(decode(view.getMinHash()));
+            }
+        }
+        return new SeenQuestions(hashes, signatures, similarityThreshold);
+    }
+
+    /** A small, bounded sample of recent question texts to quote in the prompt. */
+    public List<String> promptSample(String username, String topic) {
+        if (username == null || topic == null || topic.isBlank()) {
+            return List.of();
+        }
+        return fingerprintRepository.findRecentQuestionTexts(username, topicKey(topic), PageRequest.of(0, promptSample));
+    }
+
+    @Transactional
+    public void record(User user, String topic, List<String> questionTexts) {
+        if (topic == null || topic.isBlank()) return;
+        String topicKey = topicKey(topic);
+        List<QuestionFingerprint> fingerprints = new ArrayList<>(questionTexts.size());
+        for (String text : questionTexts) {
+            if (text == null || text.isBlank()) continue;
+            QuestionFingerprint fingerprint = new QuestionFingerprint();
+            fingerprint.setUser(user);
+            fingerprint.setTopicKey(topicKey);
+            fingerprint.setTextHash(hash(text));
+            fingerprint.setMinHash(encode(minHash(text)));
+            fingerprint.setQuestionText(text.length() > 1000 ? text.substring(0, 1000) : text);
+            fingerprints.add(fingerprint);
+        }
+        fingerprintRepository.saveAll(fingerprints);
+    }
+
+    /** Keeps the topic keys already stored canonical, so new spellings resolve to them. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void registerTopicKeys() {
+        fingerprintRepository.findTopicKeys().forEach(topicIndex::register);
+    }
+
+    /** Builds the index from existing quiz history the first time the app starts with this feature. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void backfillIfEmpty() {
+        if (fingerprintRepository.count() > 0 || quizResultRepository.count() == 0) {
+            return;
+        }
+        int recorded = 0;
+        Pageable pageable = PageRequest.of(0, 1000);
+        List<QuizResultRepository.AskedQuestion> page;
+        do {
+            page = quizResultRepository.findAskedQuestions(pageable);
+            // Rows come ordered by result, so consecutive rows with the same user and topic form one batch
+            Map<List<Object>, List<String>> batches = new LinkedHashMap<>();
+            for (QuizResultRepository.AskedQuestion asked : page) {
+                batches.computeIfAbsent(Arrays.asList(asked.getUserId(), asked.getTopic()), k -> new ArrayList<>())
+                        .add(asked.getQuestionText());
+            }
+            for (Map.Entry<List<Object>, List<String>> batch : batches.entrySet()) {
+                User user = userRepository.getReferenceById((Long) batch.getKey().get(0));
+                record(user, (String) batch.getKey().get(1), batch.getValue());
+                recorded += batch.getValue().size();
+            }
+            pageable = pageable.next();
+        } while (page.size() == pageable.getPageSize());
+        logger.info("Backfilled {} question fingerprints from existing quiz history.", recorded);
+    }
+
+    private String topicKey(String topic) {
+        return topicIndex.canonicalId(topic);
+    }
+
+    // Lowercase letters and digits only, single-spaced, so punctuation and case don't matter
+    static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT).replaceAll("[^\\p{L}\\p{N}]+", " ").trim();
+    }
+
+    /** 64-bit FNV-1a hash of the normalized text. */
+    static long hash(String text) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : normalize(text).getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+
+    static int[] minHash(String text) {
+        String normalized = normalize(text);
+        int[] signature = new int[SIGNATURE_SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        for (int start = 0; start + SHINGLE_LENGTH <= Math.max(normalized.length(), SHINGLE_LENGTH); start++) {
+            int end = Math.min(normalized.length(), start + SHINGLE_LENGTH);
+            long shingle = normalized.substring(start, end).hashCode() & 0xffffffffL;
+            for (int i = 0; i < SIGNATURE_SIZE; i++) {
+                int value = (int) ((A[i] * shingle + B[i]) % PRIME);
+                if (value < signature[i]) signature[i] = value;
+            }
+        }
+        return signature;
+    }
+
+    static double similarity(int[] a, int[] b) {
+        int same = 0;
+        for (int i = 0; i < SIGNATURE_SIZE; i++) {
+            if (a[i] == b[i]) same++;
+        }
+        return (double) same / SIGNATURE_SIZE;
+    }
+
+    private static byte[] encode(int[] signature) {
+        ByteBuffer buffer = ByteBuffer.allocate(signature.length * Integer.BYTES);
+        for (int value : signature) buffer.putInt(value);
+        return buffer.array();
+    }
+
+    private static int[] decode(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        int[] signature = new int[bytes.length / Integer.BYTES];
+        for (int i = 0; i < signature.length; i++) signature[i] = buffer.getInt();
+        return signature;
+    }
+
+    /** The fingerprints a user already has for one topic, used to filter new questions. */
+    public static class SeenQuestions {
+
+        public static final SeenQuestions EMPTY = new SeenQuestions(Set.of(), List.of(), 1.0);
+
+        private final Set<Long> hashes;
+        private final List<int[]> signatures;
+        private final double threshold;
+
+        SeenQuestions(Set<Long> hashes, List<int[]> signatures, double threshold) {
+            this.hashes = hashes;
+            this.signatures = signatures;
+            this.threshold = threshold;
+        }
+
+        /** True if the question is an exact or near-duplicate of one the user has seen. */
+        public boolean contains(String questionText) {
+            if (questionText == null || hashes.isEmpty()) return false;
+            if (hashes.contains(hash(questionText))) return true;
+            int[] signature = minHash(questionText);
+            for (int[] seen : signatures) {
+                if (similarity(signature, seen) >= threshold) return true;
+            }
+            return false;
+        }
+
+        public int size() {
+            return hashes.size();
+        }
+    }
+}
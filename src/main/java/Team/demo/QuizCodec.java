@@ -0,0 +1,189 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A compact binary encoding of a quiz for the quiz store: varint lengths and counts,
+ * UTF-8 strings and one-byte codes for the common question types. The first byte is a
+ * format version so stored quizzes can outlive a format change. Quiz requests waiting
+ * for their stream to start are encoded the same way.
+ */
+final class QuizCodec {
+
+    private static final int VERSION = 1;
+    private static final String[] KNOWN_TYPES = {"Multiple Choice", "Fill in the Blank"};
+
+    private QuizCodec() {}
+
+    static byte[] encode(Quiz quiz) {
+        Writer out = new Writer();
+        out.varint(VERSION);
+        out.string(quiz.getTopic());
+        out.string(quiz.getDifficulty());
+        out.type(quiz.getType());
+        List<Question> questions = quiz.getQuestions() != null ? quiz.getQuestions() : List.of();
+        out.varint(questions.size());
+        for (Question question : questions) {
+            out.type(question.getType());
+            out.string(question.getQuestion());
+            List<String> options = question.getOptions();
+            out.varint(options == null ? 0 : options.size() + 1); // 0 means no option list at all
+            if (options != null) {
+                options.forEach(out::string);
+            }
+            out.varint(question.getCorrectOptionIndex() + 1); // -1 (no correct option) becomes 0
+            out.string(question.getAnswer());
+            out.string(question.getExplanation());
+        }
+        return out.toByteArray();
+    }
+
+    static Quiz decode(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.varint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported quiz encoding version " + version + ".");
+        }
+        String topic = in.string();
+        String difficulty = in.string();
+        String type = in.type();
+        int count = in.varint();
+        List<Question> questions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Question question = new Question();
+            question.setType(in.type());
+            question.setQuestion(in.string());
+            int options = in.varint();
+            if (options > 0) {
+                List<String> optionList = new ArrayList<>(options - 1);
+                for (int j = 0; j < options - 1; j++) {
+                    optionList.add(in.string());
+                }
+                question.setOptions(optionList);
+            }
+            question.setCorrectOptionIndex(in.varint() - 1);
+            question.setAnswer(in.string());
+            question.setExplanation(in.string());
+            questions.add(question);
+        }
+        return new Quiz(topic, difficulty, type, questions);
+    }
+
+    /** Encodes a prepared request without the user's seen questions; they come back empty and are reloaded. */
+    static byte[] encodeRequest(QuizRequest request) {
+        Writer out = new Writer();
+        out.varint(VERSION);
+        out.string(request.topic());
+        out.string(request.topicKey());
+        out.varint(request.numberOfQuestions());
+        out.string(request.difficulty());
+        out.type(request.type());
+        out.string(request.context());
+        out.varint(request.fromFile() ? 1 : 0);
+        out.string(request.documentHash());
+        List<String> exclusionSample = request.exclusionSample() != null ? request.exclusionSample() : List.of();
+        out.varint(exclusionSample.size());
+        exclusionSample.forEach(out::string);
+        return out.toByteArray();
+    }
+
+    static QuizRequest decodeRequest(byte[] data) {
+        Reader in = new Reader(data);
+        int version = in.varint();
+        if (version != VERSION) {
+            throw new IllegalArgumentException("Unsupported quiz request encoding version " + version + ".");
+        }
+        String topic = in.string();
+        String topicKey = in.string();
+        int numberOfQuestions = in.varint();
+        String difficulty = in.string();
+        String type = in.type();
+        String context = in.string();
+        boolean fromFile = in.varint() == 1;
+        String documentHash = in.string();
+        int count = in.varint();
+        List<String> exclusionSample = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            exclusionSample.add(in.string());
+        }
+        return new QuizRequest(topic, topicKey, numberOfQuestions, difficulty, type, context, fromFile, documentHash,
+                exclusionSample, QuestionFingerprintService.SeenQuestions.EMPTY);
+    }
+
+    private static final class Writer extends ByteArrayOutputStream {
+
+        Writer() {
+            super(256);
+        }
+
+        void varint(int value) {
+            while ((value & ~0x7F) != 0) {
+                write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            write(value);
+        }
+
+        // Length + 1 first, so that 0 can stand for null
+        void string(String value) {
+            if (value == null) {
+                varint(0);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length + 1);
+            write(bytes, 0, bytes.length);
+        }
+
+        // Known types take one byte; anything else is written out after a marker
+        void type(String type) {
+            for (int i = 0; i < KNOWN_TYPES.length; i++) {
+                if (KNOWN_TYPES[i].equals(type)) {
+                    varint(i + 1);
+                    return;
+                }
+            }
+            varint(0);
+            string(type);
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] data;
+        private int position;
+
+        Reader(byte[] data) {
+            this.data = data;
+        }
+
+        int varint() {
+            int value = 0;
+            for (int shift = 0; shift < 32; shift += 7) {
+                byte b = data[position++];
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) return value;
+            }
+            throw new IllegalArgumentException("Malformed varint in encoded quiz.");
+        }
+
+        String string() {
+            int length = varint();
+            if (length == 0) return null;
+            String value = new String(data, position, length - 1, StandardCharsets.UTF_8);
+            position += length - 1;
+            return value;
+        }
+
+        String type() {
+            int code = varint();
+            return code == 0 ? string() : KNOWN_TYPES[code - 1];
+        }
+    }
+}
@@ -1,35 +1,80 @@
 package Team.demo;
 
 import Team.demo.model.*;
+import io.micrometer.observation.Observation;
+import io.micrometer.observation.ObservationRegistry;
 import jakarta.servlet.http.HttpServletRequest;
-import jakarta.servlet.http.HttpSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Arrays;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Controller
 public class QuizController {
 
+    private static final Logger logger = LoggerFactory.getLogger(QuizController.class);
+    private static final long STREAM_TIMEOUT_MS = 180_000;
+
     private final AiQuizService aiQuizService;
     private final QuizResultRepository quizResultRepository;
     private final UserRepository userRepository;
+    private final UserStatsService userStatsService;
+    private final QuizResultWriter quizResultWriter;
+    private final QuizStore quizStore;
+    private final QuizPrefetcher quizPrefetcher;
+    private final Executor quizStreamExecutor;
+    private final ObservationRegistry observationRegistry;
+
+    @Value("${quiz.streaming.enabled:true}")
+    private boolean streamingEnabled;
+
+    @Value("${quiz.history.page-size:20}")
+    private int historyPageSize;
+
+    @Value("${quiz.jobs.enabled:false}")
+    private boolean asyncJobsEnabled;
 
-    public QuizController(AiQuizService aiQuizService, QuizResultRepository quizResultRepository, UserRepository userRepository) {
+    public QuizController(AiQuizService aiQuizService, QuizResultRepository quizResultRepository, UserRepository userRepository,
+                          UserStatsService userStatsService, QuizResultWriter quizResultWriter, QuizStore quizStore, QuizPrefetcher quizPrefetcher,
+                          @Qualifier("quizStreamExecutor") Executor quizStreamExecutor, ObservationRegistry observationRegistry) {
         this.aiQuizService = aiQuizService;
         this.quizResultRepository = quizResultRepository;
         this.userRepository = userRepository;
+        this.userStatsService = userStatsService;
+        this.quizResultWriter = quizResultWriter;
+        this.quizStore = quizStore;
+        this.quizPrefetcher = quizPrefetcher;
+        this.quizStreamExecutor = quizStreamExecutor;
+        this.observationRegistry = observationRegistry;
     }
 
     @GetMapping("/")
@@ -37,6 +82,7 @@ public class QuizController {
         if (error != null) {
             model.addAttribute("error", "Failed to generate quiz. The AI service may be busy or the request was invalid. Please try again.");
         }
+        model.addAttribute("asyncJobs", asyncJobsEnabled);
         return "index";
     }
 
@@ -48,7 +94,6 @@ public class QuizController {
                                @RequestParam int totalTime, // Added totalTime
                                @RequestParam(required = false) MultipartFile file,
                                Model model,
-                               HttpSession session,
                                RedirectAttributes redirectAttributes) {
 
         if ((topic == null || topic.isBlank()) && (file == null || file.isEmpty())) {
@@ -56,58 +101,171 @@ public class QuizController {
             return "redirect:/";
         }
 
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        String username = authentication.getName();
         Quiz quiz;
         try {
-            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-            String username = authentication.getName();
             // Pass file to AiQuizService
-            quiz = aiQuizService.generateQuiz(topic, numberOfQuestions, difficulty, type, file, username);
+            QuizRequest quizRequest = aiQuizService.prepareRequest(topic, numberOfQuestions, difficulty, type, file, username);
+            // A quiz generated in the background after the user's last submit, if it is what they asked for
+            quiz = quizPrefetcher.take(username, quizRequest);
+            if (quiz == null && streamingEnabled) {
+                quiz = aiQuizService.takeFromBank(quizRequest);
+                if (quiz == null) {
+                    // Render the page straight away; the questions follow over /generate-quiz/stream
+                    String streamId = UUID.randomUUID().toString();
+                    // Held in the quiz store, so the stream can start on whichever node it reaches
+                    quizStore.putPending(streamId, username, quizRequest);
+                    model.addAttribute("quiz", new Quiz(quizRequest.topic(), difficulty, type, new ArrayList<>()));
+                    model.addAttribute("streamId", streamId);
+                    model.addAttribute("quizId", streamId); // The streamed quiz is stored under the stream's id
+                    model.addAttribute("totalTime", totalTime);
+                    return "quiz_dynamic";
+                }
+            } else if (quiz == null) {
+                quiz = aiQuizService.generateQuiz(quizRequest);
+            }
             if (quiz == null || quiz.getQuestions() == null || quiz.getQuestions().isEmpty()) {
                 // Use fallback
-                quiz = createFallbackQuiz(topic, difficulty, type);
-                model.addAttribute("note", "⚠️ AI service unavailable. Showing a fallback quiz.");
+                quiz = aiQuizService.createFallbackQuiz(topic, difficulty, type);
+                model.addAttribute("note", AiQuizService.FALLBACK_NOTE);
             }
+        } catch (CircuitOpenException e) {
+            // The AI service has been failing; don't make the user wait for it
+            logger.warn(e.getMessage());
+            quiz = aiQuizService.createFallbackQuiz(topic, difficulty, type);
+            model.addAttribute("note", AiQuizService.FALLBACK_NOTE);
         } catch (Exception e) {
             // Catch exceptions from AI service (e.g., rate limit, bad response)
-            e.printStackTrace(); // Log the error
+            logger.error("Quiz generation failed.", e);
             redirectAttributes.addFlashAttribute("error", "Failed to generate quiz. The AI service may be busy. Please try again.");
             return "redirect:/";
         }
 
-        session.setAttribute("currentQuiz", quiz);
+        String quizId = QuizStore.newQuizId();
+        quizStore.put(quizId, username, quiz);
+        model.addAttribute("quizId", quizId);
         model.addAttribute("quiz", quiz);
         model.addAttribute("totalTime", totalTime); // Pass totalTime to the quiz page
         return "quiz_dynamic";
     }
 
-    @PostMapping("/submit")
-    public String submitQuiz(HttpServletRequest request, Model model) {
-        HttpSession session = request.getSession(false);
-        if (session == null) {
-            return "redirect:/";
+    /**
+     * Streams the questions of a pending quiz to the browser as Server-Sent Events.
+     * Each "question" event carries one question (without its answer); "done" follows
+     * once the whole quiz is in the quiz store and can be submitted.
+     */
+    @GetMapping(value = "/generate-quiz/stream/{streamId}", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @ResponseBody
+    public SseEmitter streamQuiz(@PathVariable String streamId) {
+        SseEmitter emitter = new SseEmitter(STREAM_TIMEOUT_MS);
+        String username = SecurityContextHolder.getContext().getAuthentication().getName();
+        QuizRequest quizRequest = quizStore.takePending(streamId, username)
+                .map(pending -> aiQuizService.withSeenQuestions(pending, username))
+                .orElse(null);
+        if (quizRequest == null) {
+            sendEvent(emitter, "failed", "Unknown or already started quiz stream.");
+            emitter.complete();
+            return emitter;
         }
 
+        try {
+            quizStreamExecutor.execute(() -> stream(emitter, streamId, username, quizRequest));
+        } catch (RejectedExecutionException e) {
+            logger.warn("Quiz stream executor is full; rejecting stream {}.", streamId);
+            sendEvent(emitter, "failed", "Too many quizzes are being generated right now. Please try again in a moment.");
+            emitter.complete();
+        }
+        return emitter;
+    }
+
+    private void stream(SseEmitter emitter, String streamId, String username, QuizRequest quizRequest) {
+        try {
+            AtomicInteger index = new AtomicInteger();
+            Quiz quiz;
+            try {
+                quiz = aiQuizService.streamQuiz(quizRequest,
+                        question -> sendEvent(emitter, "question", toClientQuestion(index.getAndIncrement(), question)));
+            } catch (CircuitOpenException e) {
+                logger.warn(e.getMessage());
+                quiz = aiQuizService.createFallbackQuiz(quizRequest.topic(), quizRequest.difficulty(), quizRequest.type());
+                for (Question question : quiz.getQuestions()) {
+                    sendEvent(emitter, "question", toClientQuestion(index.getAndIncrement(), question));
+                }
+            }
+            quizStore.put(streamId, username, quiz);
+            sendEvent(emitter, "done", quiz.getQuestions().size());
+            emitter.complete();
+        } catch (Exception e) {
+            logger.error("Streaming quiz generation failed.", e);
+            try {
+                sendEvent(emitter, "failed", "Failed to generate quiz. The AI service may be busy. Please try again.");
+            } catch (UncheckedIOException ignored) {
+                // The browser has already gone away
+            }
+            emitter.complete();
+        }
+    }
+
+    private static void sendEvent(SseEmitter emitter, String name, Object data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).data(data));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Only what the page needs to render the question; the answer stays on the server
+    private static Map<String, Object> toClientQuestion(int index, Question question) {
+        Map<String, Object> payload = new LinkedHashMap<>();
+        payload.put("index", index);
+        payload.put("question", question.getQuestion());
+        payload.put("options", question.getOptions() != null ? question.getOptions() : List.of());
+        return payload;
+    }
+
+    @PostMapping("/submit")
+    public String submitQuiz(HttpServletRequest request, Model model) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String currentUsername = authentication.getName();
-        User currentUser = userRepository.findByUsername(currentUsername).orElse(null);
-        Quiz quiz = (Quiz) session.getAttribute("currentQuiz");
+        User currentUser = db("load_user", () -> userRepository.findByUsername(currentUsername).orElse(null));
+        String quizId = request.getParameter("quizId");
+        Quiz quiz = quizStore.get(quizId, currentUsername).orElse(null);
 
         if (quiz == null || currentUser == null) {
             return "redirect:/";
         }
 
+        QuizResult quizResult = grade(quiz, request::getParameter);
+        quizResult.setUser(currentUser);
+        db("save_result", () -> {
+            quizResultWriter.write(quizResult);
+            return null;
+        });
+
+        model.addAttribute("score", quizResult.getScore());
+        model.addAttribute("total", quizResult.getTotal());
+        model.addAttribute("questionResults", quizResult.getQuestionResults());
+
+        quizStore.remove(quizId);
+        quizPrefetcher.prefetchNext(currentUsername);
+
+        return "result";
+    }
+
+    /** Grades the answers posted as q0, q1, ... against the quiz; the result has no user yet. */
+    static QuizResult grade(Quiz quiz, Function<String, String> parameters) {
         List<Question> questions = quiz.getQuestions();
         int score = 0;
 
         QuizResult quizResult = new QuizResult();
         quizResult.setTopic(quiz.getTopic());
-        quizResult.setUser(currentUser);
 
         List<QuestionResult> questionResults = new ArrayList<>();
 
         for (int i = 0; i < questions.size(); i++) {
             Question q = questions.get(i);
-            String userAnswer = request.getParameter("q" + i);
+            String userAnswer = parameters.apply("q" + i);
             String correctAnswer = q.getCorrectAnswerText();
             boolean isCorrect = false;
 
@@ -133,77 +291,75 @@ public class QuizController {
         quizResult.setQuestionResults(questionResults);
         quizResult.setScore(score);
         quizResult.setTotal(questions.size());
-        quizResultRepository.save(quizResult);
-
-        model.addAttribute("score", score);
-        model.addAttribute("total", questions.size());
-        model.addAttribute("questionResults", questionResults);
-
-        session.removeAttribute("currentQuiz");
-
-        return "result";
+        return quizResult;
     }
 
     @GetMapping("/history")
-    public String history(Model model) {
+    public String history(@RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime beforeTime,
+                          @RequestParam(required = false) Long beforeId,
+                          Model model) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String currentUsername = authentication.getName();
-        List<QuizResult> history = quizResultRepository.findByUser_UsernameOrderByTimestampDesc(currentUsername);
+        quizResultWriter.awaitPersisted(currentUsername);
+        // Keyset pagination: one row more than a page tells us whether there is an older page
+        PageRequest page = PageRequest.of(0, historyPageSize + 1);
+        List<QuizResult> history = db("history_page", () -> beforeTime == null || beforeId == null
+                ? quizResultRepository.findHistoryPage(currentUsername, page)
+                : quizResultRepository.findHistoryPageBefore(currentUsername, beforeTime, beforeId, page));
+        boolean hasMore = history.size() > historyPageSize;
+        if (hasMore) {
+            history = history.subList(0, historyPageSize);
+            QuizResult last = history.get(history.size() - 1);
+            model.addAttribute("nextTime", last.getTimestamp());
+            model.addAttribute("nextId", last.getId());
+        }
         model.addAttribute("history", history);
+        model.addAttribute("hasMore", hasMore);
+        model.addAttribute("firstPage", beforeTime == null);
         return "history";
     }
 
+    /** The question breakdown of one past quiz, loaded when its history entry is expanded. */
+    @GetMapping("/history/{resultId}/questions")
+    @ResponseBody
+    public List<QuestionResult> historyQuestions(@PathVariable Long resultId) {
+        String currentUsername = SecurityContextHolder.getContext().getAuthentication().getName();
+        return db("history_questions", () -> quizResultRepository.findQuestionResults(resultId, currentUsername));
+    }
+
+    // Times a piece of page-serving database work as a quiz.db timer and span
+    private <T> T db(String operation, Supplier<T> work) {
+        return Observation.createNotStarted("quiz.db", observationRegistry)
+                .contextualName("db " + operation)
+                .lowCardinalityKeyValue("operation", operation)
+                .observe(work);
+    }
+
     // ✅ --- NEW PROFILE ENDPOINT --- ✅
     @GetMapping("/profile")
     public String profile(Model model) {
         Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
         String currentUsername = authentication.getName();
 
-        // Fetch all results for statistics
-        List<QuizResult> allResults = quizResultRepository.findByUser_UsernameOrderByTimestampDesc(currentUsername);
+        quizResultWriter.awaitPersisted(currentUsername);
+        // Totals are kept up to date on submit, so this is a single-row read
+        UserStats overall = db("profile_stats", () -> userStatsService.overall(currentUsername));
 
-        // Calculate stats
-        int totalQuizzes = allResults.size();
-        int totalScore = allResults.stream().mapToInt(QuizResult::getScore).sum();
-        int totalQuestions = allResults.stream().mapToInt(QuizResult::getTotal).sum();
-
-        double averageScore = 0.0;
-        if (totalQuestions > 0) {
-            averageScore = (100.0 * totalScore) / totalQuestions;
-        }
-
-        // Get top 5 recent quizzes for display
-        List<QuizResult> recentQuizzes = allResults.stream().limit(5).collect(Collectors.toList());
+        // Get top 5 recent quizzes for display, with their questions in one more query
+        List<QuizResult> recentQuizzes = db("profile_recent", () -> {
+            List<Long> recentIds = quizResultRepository.findRecentIds(currentUsername, PageRequest.of(0, 5));
+            return recentIds.isEmpty() ? List.<QuizResult>of() : quizResultRepository.findWithQuestionsByIdIn(recentIds);
+        });
+        List<UserStats> topicStats = db("profile_topics", () -> userStatsService.topTopics(currentUsername, 5));
 
         // Add stats to the model
-        model.addAttribute("totalQuizzes", totalQuizzes);
-        model.addAttribute("totalQuestions", totalQuestions);
-        model.addAttribute("averageScore", averageScore);
+        model.addAttribute("totalQuizzes", overall.getQuizzes());
+        model.addAttribute("totalQuestions", overall.getQuestions());
+        model.addAttribute("averageScore", overall.getAverageScore());
+        model.addAttribute("topicStats", topicStats);
         model.addAttribute("recentQuizzes", recentQuizzes);
 
         return "profile";
     }
     // ==================================
-
-
-    private Quiz createFallbackQuiz(String topic, String difficulty, String type) {
-        List<Question> fallbackQuestions = new ArrayList<>();
-        if ("Fill in the Blank".equals(type)) {
-            Question q = new Question();
-            q.setType("Fill in the Blank");
-            q.setQuestion("The capital of France is ____.");
-            q.setAnswer("Paris");
-            q.setExplanation("Paris is the capital and most populous city of France.");
-            fallbackQuestions.add(q);
-        } else {
-            Question q = new Question();
-            q.setType("Multiple Choice");
-            q.setQuestion("What does AI stand for?");
-            q.setOptions(Arrays.asList("Artificial Intelligence", "Automated Input", "None"));
-            q.setCorrectOptionIndex(0);
-            q.setExplanation("'AI' is the acronym for 'Artificial Intelligence'.");
-            fallbackQuestions.add(q);
-        }
-        return new Quiz(topic, difficulty, type, fallbackQuestions);
-    }
 }
\ No newline at end of file
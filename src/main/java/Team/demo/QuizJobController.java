@@ -0,0 +1,118 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Controller;
+import org.springframework.ui.Model;
+import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * JSON endpoints for asynchronous quiz generation: submit a job, poll its status,
+ * cancel it, and finally open the finished quiz.
+ */
+@Controller
+public class QuizJobController {
+
+    private final AiQuizService aiQuizService;
+    private final QuizJobService quizJobService;
+    private final QuizStore quizStore;
+
+    public QuizJobController(AiQuizService aiQuizService, QuizJobService quizJobService, QuizStore quizStore) {
+        this.aiQuizService = aiQuizService;
+        this.quizJobService = quizJobService;
+        this.quizStore = quizStore;
+    }
+
+    @PostMapping("/quiz-jobs")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> submit(@RequestParam(required = false) String topic,
+                                                      @RequestParam int numberOfQuestions,
+                                                      @RequestParam String difficulty,
+                                                      @RequestParam String type,
+                                                      @RequestParam(required = false) MultipartFile file) {
+        if ((topic == null || topic.isBlank()) && (file == null || file.isEmpty())) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Please provide a topic or upload a file."));
+        }
+        String username = currentUsername();
+        try {
+            // The upload is read here, while the request is still alive
+            QuizRequest quizRequest = aiQuizService.prepareRequest(topic, numberOfQuestions, difficulty, type, file, username);
+            QuizJobService.QuizJob job = quizJobService.submit(quizRequest, username);
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(toStatus(job));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .body(Map.of("error", "Too many quizzes are being generated right now. Please try again shortly."));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/quiz-jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> status(@PathVariable String jobId) {
+        return quizJobService.find(jobId, currentUsername())
+                .map(job -> ResponseEntity.ok(toStatus(job)))
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/quiz-jobs/{jobId}")
+    @ResponseBody
+    public ResponseEntity<Void> cancel(@PathVariable String jobId) {
+        return quizJobService.cancel(jobId, currentUsername())
+                ? ResponseEntity.noContent().build()
+                : ResponseEntity.notFound().build();
+    }
+
+    @GetMapping("/quiz-jobs/{jobId}/quiz")
+    public String openQuiz(@PathVariable String jobId,
+                           @RequestParam(defaultValue = "600") int totalTime,
+                           Model model) {
+        Optional<QuizJobService.QuizJob> job = quizJobService.claim(jobId, currentUsername());
+        if (job.isEmpty()) {
+            return "redirect:/?error";
+        }
+        Quiz quiz = job.get().getQuiz();
+        String quizId = QuizStore.newQuizId();
+        quizStore.put(quizId, currentUsername(), quiz);
+        model.addAttribute("quizId", quizId);
+        model.addAttribute("quiz", quiz);
+        if (job.get().getNote() != null) {
+            model.addAttribute("note", job.get().getNote());
+        }
+        model.addAttribute("totalTime", totalTime);
+        return "quiz_dynamic";
+    }
+
+    private static Map<String, Object> toStatus(QuizJobService.QuizJob job) {
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("jobId", job.getId());
+        body.put("status", job.getStatus());
+        if (job.getNote() != null) {
+            body.put("note", job.getNote()); // e.g. the quiz is a fallback because the AI service is unavailable
+        }
+        if (job.getError() != null) {
+            body.put("error", job.getError());
+        }
+        return body;
+    }
+
+    private static String currentUsername() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        return authentication.getName();
+    }
+}
@@ -0,0 +1,153 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs quiz generation as background jobs so the servlet thread that accepted the
+ * request can go straight back to the pool. Jobs wait in a bounded queue, can be
+ * cancelled by their owner and are forgotten once they expire.
+ */
+@Service
+public class QuizJobService {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuizJobService.class);
+
+    public enum Status { QUEUED, RUNNING, DONE, FAILED, CANCELLED }
+
+    private final AiQuizService aiQuizService;
+    private final QuizPrefetcher quizPrefetcher;
+    private final AsyncTaskExecutor quizJobExecutor;
+    private final Map<String, QuizJob> jobs = new ConcurrentHashMap<>();
+
+    @Value("${quiz.jobs.ttl-minutes:15}")
+    private long ttlMinutes;
+
+    public QuizJobService(AiQuizService aiQuizService, QuizPrefetcher quizPrefetcher,
+                          @Qualifier("quizJobExecutor") AsyncTaskExecutor quizJobExecutor) {
+        this.aiQuizService = aiQuizService;
+        this.quizPrefetcher = quizPrefetcher;
+        this.quizJobExecutor = quizJobExecutor;
+    }
+
+    /**
+     * Queues a generation job and returns it right away.
+     *
+     * @throws RejectedExecutionException if the job queue is full.
+     */
+    public QuizJob submit(QuizRequest request, String username) {
+        QuizJob job = new QuizJob(UUID.randomUUID().toString(), username);
+        jobs.put(job.getId(), job);
+        try {
+            job.future = quizJobExecutor.submit(() -> run(job, request));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.getId());
+            throw e;
+        }
+        return job;
+    }
+
+    /** Returns the job only if it belongs to the given user. */
+    public Optional<QuizJob> find(String jobId, String username) {
+        QuizJob job = jobs.get(jobId);
+        return job != null && job.getUsername().equals(username) ? Optional.of(job) : Optional.empty();
+    }
+
+    public boolean cancel(String jobId, String username) {
+        Optional<QuizJob> job = find(jobId, username);
+        job.ifPresent(j -> {
+            j.finish(Status.CANCELLED, null, null, null);
+            if (j.future != null) j.future.cancel(true);
+        });
+        return job.isPresent();
+    }
+
+    /** Hands the finished job, with its quiz, over exactly once and drops it. */
+    public Optional<QuizJob> claim(String jobId, String username) {
+        Optional<QuizJob> job = find(jobId, username).filter(j -> j.getStatus() == Status.DONE);
+        job.ifPresent(j -> jobs.remove(j.getId()));
+        return job;
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.jobs.cleanup-interval-ms:60000}")
+    public void expireJobs() {
+        Instant cutoff = Instant.now().minus(Duration.ofMinutes(ttlMinutes));
+        jobs.values().removeIf(job -> {
+            if (job.getCreatedAt().isAfter(cutoff)) return false;
+            if (job.future != null) job.future.cancel(true);
+            return true;
+        });
+    }
+
+    private void run(QuizJob job, QuizRequest request) {
+        if (!job.start()) return; // Cancelled while still queued
+        try {
+            // Like /generate-quiz: use a prefetched quiz if it matches, and remember what to prefetch next
+            Quiz prefetched = quizPrefetcher.take(job.getUsername(), request);
+            job.finish(Status.DONE, prefetched != null ? prefetched : aiQuizService.generateQuiz(request), null, null);
+        } catch (CircuitOpenException e) {
+            logger.warn(e.getMessage());
+            // Done, but with the same note as the synchronous path so the client can tell it's a placeholder
+            job.finish(Status.DONE, aiQuizService.createFallbackQuiz(request.topic(), request.difficulty(), request.type()),
+                    AiQuizService.FALLBACK_NOTE, null);
+        } catch (Exception e) {
+            logger.error("Quiz generation job {} failed.", job.getId(), e);
+            job.finish(Status.FAILED, null, null, "Failed to generate quiz. The AI service may be busy. Please try again.");
+        }
+    }
+
+    public static class QuizJob {
+        private final String id;
+        private final String username;
+        private final Instant createdAt = Instant.now();
+        private volatile Status status = Status.QUEUED;
+        private volatile Quiz quiz;
+        private volatile String note;
+        private volatile String error;
+        private volatile Future<?> future;
+
+        QuizJob(String id, String username) {
+            this.id = id;
+            this.username = username;
+        }
+
+        private synchronized boolean start() {
+            if (status != Status.QUEUED) return false;
+            status = Status.RUNNING;
+            return true;
+        }
+
+        // The first terminal state wins, so a late result can't undo a cancellation
+        private synchronized void finish(Status status, Quiz quiz, String note, String error) {
+            if (this.status == Status.QUEUED || this.status == Status.RUNNING) {
+                this.status = status;
+                this.quiz = quiz;
+                this.note = note;
+                this.error = error;
+            }
+        }
+
+        public String getId() { return id; }
+        public String getUsername() { return username; }
+        public Instant getCreatedAt() { return createdAt; }
+        public Status getStatus() { return status; }
+        public Quiz getQuiz() { return quiz; }
+        public String getNote() { return note; }
+        public String getError() { return error; }
+    }
+}
@@ -0,0 +1,135 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Generates a user's next quiz while they are reading their results. After a submit, the
+ * last topic quiz the user asked for is generated again in the background (the questions
+ * they just answered are already in their seen set and the prompt's exclusion sample) and
+ * parked in a per-user slot for a short TTL. If the next /generate-quiz asks for the same
+ * topic, difficulty, type and count, it is served from the slot without waiting on the AI;
+ * so is the next quiz job. The prefetch executor has no queue, so it doubles as the global cap on prefetches in flight.
+ */
+@Component
+public class QuizPrefetcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuizPrefetcher.class);
+
+    private final AiQuizService aiQuizService;
+    private final QuizResultWriter quizResultWriter;
+    private final Executor prefetchExecutor;
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final Duration ttl;
+
+    // The last topic quiz each user asked for: what to prefetch after their next submit
+    private final Map<String, Key> lastRequested = new ConcurrentHashMap<>();
+    private final Map<String, Slot> slots = new ConcurrentHashMap<>();
+
+    public QuizPrefetcher(AiQuizService aiQuizService, QuizResultWriter quizResultWriter,
+                          @Qualifier("quizPrefetchExecutor") Executor prefetchExecutor, MeterRegistry meterRegistry,
+                          @Value("${quiz.prefetch.enabled:false}") boolean enabled,
+                          @Value("${quiz.prefetch.ttl-seconds:300}") long ttlSeconds) {
+        this.aiQuizService = aiQuizService;
+        this.quizResultWriter = quizResultWriter;
+        this.prefetchExecutor = prefetchExecutor;
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+    }
+
+    /**
+     * Returns the prefetched quiz if it matches the request, or null. Either way the user's
+     * slot is emptied: a prefetch for anything else won't be asked for any more.
+     */
+    public Quiz take(String username, QuizRequest request) {
+        if (!enabled) return null;
+        if (!request.fromFile()) {
+            lastRequested.put(username, Key.of(request));
+        }
+        Slot slot = slots.remove(username);
+        if (slot == null) {
+            count("miss");
+            return null;
+        }
+        if (!request.fromFile() && slot.key().matches(request) && slot.expiresAt() >= System.currentTimeMillis()) {
+            count("hit");
+            return slot.quiz();
+        }
+        count("wasted");
+        count("miss");
+        return null;
+    }
+
+    /** Starts generating the user's next quiz, unless the prefetch cap is reached. */
+    public void prefetchNext(String username) {
+        if (!enabled) return;
+        Key key = lastRequested.remove(username);
+        if (key == null) return;
+        try {
+            prefetchExecutor.execute(() -> prefetch(username, key));
+        } catch (RejectedExecutionException e) {
+            count("skipped");
+            logger.debug("Prefetch cap reached, not prefetching for '{}'.", username);
+        }
+    }
+
+    private void prefetch(String username, Key key) {
+        try {
+            // The seen set and exclusion sample must include the quiz that was just submitted
+            quizResultWriter.awaitPersisted(username);
+            QuizRequest request = aiQuizService.prepareRequest(key.topic(), key.numberOfQuestions(), key.difficulty(), key.type(), null, username);
+            // A guess at what the user wants next stays out of the question bank everyone shares
+            Quiz quiz = aiQuizService.generateUnbanked(request);
+            Slot previous = slots.put(username, new Slot(key, quiz, System.currentTimeMillis() + ttl.toMillis()));
+            if (previous != null) count("wasted");
+            count("generated");
+        } catch (Exception e) {
+            count("failed");
+            logger.warn("Prefetching the next quiz for '{}' failed.", username, e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${quiz.store.eviction-interval-ms:60000}")
+    public void evictExpired() {
+        long now = System.currentTimeMillis();
+        slots.values().removeIf(slot -> {
+            if (slot.expiresAt() >= now) return false;
+            count("wasted");
+            return true;
+        });
+    }
+
+    // quiz.prefetch{outcome}: generated, hit, miss, wasted (expired or not what was asked for), skipped, failed
+    private void count(String outcome) {
+        meterRegistry.counter("quiz.prefetch", "outcome", outcome).increment();
+    }
+
+    record Key(String topic, String topicKey, String difficulty, String type, int numberOfQuestions) {
+        static Key of(QuizRequest request) {
+            return new Key(request.topic(), request.topicKey(), request.difficulty(), request.type(), request.numberOfQuestions());
+        }
+
+        // Keyed like the question bank, so "Photosynthesis " and "photosynthesis" (or any other
+        // spelling the topic index resolves to the same topic) match
+        boolean matches(QuizRequest request) {
+            return numberOfQuestions == request.numberOfQuestions()
+                    && QuestionBank.key(topicKey, difficulty, type).equals(QuestionBank.key(request.topicKey(), request.difficulty(), request.type()));
+        }
+    }
+
+    private record Slot(Key key, Quiz quiz, long expiresAt) {}
+}
@@ -0,0 +1,24 @@
+package Team.demo;
+
+import java.util.List;
+
+/**
+ * Everything needed to generate one quiz, gathered while the original HTTP request
+ * is still around (the uploaded file is already turned into prompt context).
+ *
+ * @param topicKey        canonical id of the topic (see {@link TopicIndex}), used for caching and coalescing
+ * @param documentHash    SHA-256 of the uploaded file, or null for a topic quiz
+ * @param exclusionSample a few recent questions to quote in the prompt as "don't repeat these"
+ * @param seen            every question the user has had on this topic, for local filtering
+ */
+public record QuizRequest(String topic,
+                          String topicKey,
+                          int numberOfQuestions,
+                          String difficulty,
+                          String type,
+                          String context,
+                          boolean fromFile,
+                          String documentHash,
+                          List<String> exclusionSample,
+                          QuestionFingerprintService.SeenQuestions seen) {
+}
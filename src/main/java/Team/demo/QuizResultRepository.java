@@ -1,9 +1,61 @@
 package Team.demo;
 
+import Team.demo.model.QuestionResult;
 import Team.demo.model.QuizResult;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface QuizResultRepository extends JpaRepository<QuizResult, Long> {
-    List<QuizResult> findByUser_UsernameOrderByTimestampDesc(String username);
+
+    // Totals per user and topic, for rebuilding the user statistics
+    interface TopicTotals {
+        Long getUserId();
+        String getTopic();
+        long getQuizzes();
+        long getScore();
+        long getQuestions();
+    }
+
+    // One asked question with who it was asked to and on what topic
+    interface AskedQuestion {
+        Long getUserId();
+        String getTopic();
+        String getQuestionText();
+    }
+
+    /** The newest page of the user's history; question results are left unloaded. */
+    @Query("select r from QuizResult r where r.user.username = :username order by r.timestamp desc, r.id desc")
+    List<QuizResult> findHistoryPage(@Param("username") String username, Pageable pageable);
+
+    /** The page of history that follows the (timestamp, id) cursor of the last row shown. */
+    @Query("select r from QuizResult r where r.user.username = :username " +
+            "and (r.timestamp < :timestamp or (r.timestamp = :timestamp and r.id < :id)) " +
+            "order by r.timestamp desc, r.id desc")
+    List<QuizResult> findHistoryPageBefore(@Param("username") String username, @Param("timestamp") LocalDateTime timestamp,
+                                           @Param("id") Long id, Pageable pageable);
+
+    /** One result's question breakdown, only if it belongs to the user. */
+    @Query("select q from QuizResult r join r.questionResults q where r.id = :id and r.user.username = :username order by q.id")
+    List<QuestionResult> findQuestionResults(@Param("id") Long id, @Param("username") String username);
+
+    @Query("select r.id from QuizResult r where r.user.username = :username order by r.timestamp desc")
+    List<Long> findRecentIds(@Param("username") String username, Pageable pageable);
+
+    @EntityGraph(attributePaths = "questionResults")
+    @Query("select r from QuizResult r where r.id in :ids order by r.timestamp desc")
+    List<QuizResult> findWithQuestionsByIdIn(@Param("ids") Collection<Long> ids);
+
+    @Query("select r.user.id as userId, r.topic as topic, count(r) as quizzes, sum(r.score) as score, sum(r.total) as questions " +
+            "from QuizResult r group by r.user.id, r.topic")
+    List<TopicTotals> totalsByUserAndTopic();
+
+    @Query("select r.user.id as userId, r.topic as topic, q.questionText as questionText " +
+            "from QuizResult r join r.questionResults q order by r.id, q.id")
+    List<AskedQuestion> findAskedQuestions(Pageable pageable);
 }
@@ -0,0 +1,355 @@
+package Team.demo;
+
+import Team.demo.model.QuestionResult;
+import Team.demo.model.QuizResult;
+import Team.demo.model.User;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Persists graded quiz results. By default each result is saved before the response goes
+ * out. In write-behind mode results go into a bounded queue instead and a background
+ * writer saves them in batches. A full queue makes the submitting request wait and, after
+ * a timeout, save synchronously. Results of a batch that fails are saved one by one, and
+ * any that still fail are retried periodically; they count as pending until saved.
+ * Whatever is still queued or unsaved at shutdown is spilled to a local file and replayed
+ * on the next start. Pages that show a user's history first wait for that user's queued
+ * results, so they always see their own writes. Waiting and spilling use locks rather
+ * than monitors, so a virtual thread that blocks here doesn't pin its carrier thread.
+ */
+@Component
+public class QuizResultWriter {
+
+    private static final Logger logger = LoggerFactory.getLogger(QuizResultWriter.class);
+
+    private final UserStatsService userStatsService;
+    private final QuestionFingerprintService fingerprintService;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+
+    private final boolean writeBehind;
+    private final int batchSize;
+    private final long offerTimeoutMs;
+    private final long readYourWritesTimeoutMs;
+    private final long retryIntervalMs;
+    private final Path spillFile;
+    private final BlockingQueue<QuizResult> queue;
+    // Results per user that are queued or being written, for read-your-writes
+    private final Map<String, Integer> pendingByUser = new ConcurrentHashMap<>();
+    private final ReentrantLock pendingLock = new ReentrantLock();
+    private final Condition persisted = pendingLock.newCondition();
+    private final ReentrantLock spillLock = new ReentrantLock();
+    // Offers hold the read lock; stop() takes the write lock, so no offer can land after its final drain
+    private final ReentrantReadWriteLock acceptLock = new ReentrantReadWriteLock();
+    // Results that failed to save, retried by the writer thread; stop() takes whatever it hasn't
+    private final Queue<QuizResult> retries = new ConcurrentLinkedQueue<>();
+    private long nextRetryAt;
+
+    private volatile boolean running;
+    private Thread writerThread;
+
+    public QuizResultWriter(UserStatsService userStatsService, QuestionFingerprintService fingerprintService,
+                            UserRepository userRepository, PlatformTransactionManager transactionManager, ObjectMapper objectMapper,
+                            @Value("${quiz.results.write-behind.enabled:false}") boolean writeBehind,
+                            @Value("${quiz.results.write-behind.queue-capacity:1000}") int queueCapacity,
+                            @Value("${quiz.results.write-behind.batch-size:100}") int batchSize,
+                            @Value("${quiz.results.write-behind.offer-timeout-ms:2000}") long offerTimeoutMs,
+                            @Value("${quiz.results.write-behind.read-your-writes-timeout-ms:5000}") long readYourWritesTimeoutMs,
+                            @Value("${quiz.results.write-behind.retry-interval-ms:5000}") long retryIntervalMs,
+                            @Value("${quiz.results.write-behind.spill-file:}") String spillFile) {
+        if (writeBehind && spillFile.isBlank()) {
+            // No shared default such as the temp dir, where another instance could pick up the file
+            throw new IllegalStateException("quiz.results.write-behind.spill-file must be set when write-behind is enabled.");
+        }
+        this.userStatsService = userStatsService;
+        this.fingerprintService = fingerprintService;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.objectMapper = objectMapper;
+        this.writeBehind = writeBehind;
+        this.batchSize = batchSize;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.readYourWritesTimeoutMs = readYourWritesTimeoutMs;
+        this.retryIntervalMs = retryIntervalMs;
+        this.spillFile = spillFile.isBlank() ? null : Path.of(spillFile);
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    /** Saves the result now, or queues it in write-behind mode. */
+    public void write(QuizResult result) {
+        if (writeBehind && offer(result)) return;
+        persist(List.of(result));
+    }
+
+    // Queues the result, or saves it here if the queue stays full; false if the writer has stopped
+    private boolean offer(QuizResult result) {
+        String username = result.getUser().getUsername();
+        boolean queued = false;
+        acceptLock.readLock().lock();
+        try {
+            if (!running) return false;
+            pendingByUser.merge(username, 1, Integer::sum);
+            // Backpressure: wait for room, then give up and write on this thread
+            queued = queue.offer(result, offerTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            acceptLock.readLock().unlock();
+        }
+        if (!queued) {
+            logger.warn("Quiz result queue is full; saving synchronously.");
+            try {
+                persist(List.of(result));
+            } finally {
+                done(username);
+            }
+        }
+        return true;
+    }
+
+    /** Blocks until every result queued for the user has been saved (or the timeout passes). */
+    public void awaitPersisted(String username) {
+        if (!writeBehind) return;
+        long remaining = TimeUnit.MILLISECONDS.toNanos(readYourWritesTimeoutMs);
+        pendingLock.lock();
+        try {
+            while (pendingByUser.containsKey(username)) {
+                if (remaining <= 0) {
+                    logger.warn("Timed out waiting for queued quiz results of '{}'.", username);
+                    return;
+                }
+                remaining = persisted.awaitNanos(remaining);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    /** In write-behind mode, replays results spilled by the last run, then starts the background writer. */
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!writeBehind) return;
+        replaySpillFile();
+        running = true;
+        writerThread = new Thread(this::runWriter, "quiz-result-writer");
+        writerThread.start();
+        logger.info("Write-behind for quiz results is on (queue capacity {}, batch size {}).", queue.remainingCapacity(), batchSize);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (writerThread == null) return;
+        acceptLock.writeLock().lock();
+        try {
+            running = false; // Later writes are saved on their own thread
+        } finally {
+            acceptLock.writeLock().unlock();
+        }
+        writerThread.interrupt();
+        try {
+            writerThread.join(10_000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writerThread.isAlive()) {
+            // Still saving a batch; whatever it fails to save after this point is only logged
+            logger.warn("Quiz result writer did not stop in time; spilling what it hasn't taken yet.");
+        }
+        List<QuizResult> remaining = new ArrayList<>();
+        // Polled, so each result is either spilled here or taken by a writer that hasn't stopped
+        for (QuizResult retry; (retry = retries.poll()) != null; ) {
+            remaining.add(retry);
+        }
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            spill(remaining);
+        }
+    }
+
+    private void runWriter() {
+        List<QuizResult> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                QuizResult first = queue.poll(1, TimeUnit.SECONDS);
+                if (first != null) {
+                    batch.add(first);
+                    queue.drainTo(batch, batchSize - 1);
+                }
+            } catch (InterruptedException e) {
+                break; // Shutting down; stop() spills what is left in the queue and the retries
+            }
+            if (System.currentTimeMillis() >= nextRetryAt) {
+                for (QuizResult retry; (retry = retries.poll()) != null; ) {
+                    batch.add(retry);
+                }
+            }
+            if (batch.isEmpty()) continue;
+            save(batch);
+            batch.clear();
+        }
+    }
+
+    // Saves the batch, or else each result on its own so one bad result can't hold back the rest
+    private void save(List<QuizResult> batch) {
+        try {
+            persist(batch);
+            batch.forEach(result -> done(result.getUser().getUsername()));
+            return;
+        } catch (RuntimeException e) {
+            logger.error("Failed to save a batch of {} quiz results; saving them one by one.", batch.size(), e);
+        }
+        for (QuizResult result : batch) {
+            // A fresh copy: the failed attempt left ids on the rolled-back entities
+            QuizResult copy = SpilledResult.of(result).toQuizResult(result.getUser());
+            try {
+                persist(List.of(copy));
+                done(result.getUser().getUsername());
+            } catch (RuntimeException e) {
+                logger.warn("Failed to save a quiz result of '{}'; retrying in {}ms.", result.getUser().getUsername(), retryIntervalMs, e);
+                retries.add(copy);
+            }
+        }
+        nextRetryAt = System.currentTimeMillis() + retryIntervalMs;
+    }
+
+    // All results of a batch go in one transaction, so their inserts share JDBC batches
+    private void persist(List<QuizResult> results) {
+        transactionTemplate.executeWithoutResult(status -> {
+            for (QuizResult result : results) {
+                userStatsService.saveResult(result);
+                fingerprintService.record(result.getUser(), result.getTopic(),
+                        result.getQuestionResults().stream().map(QuestionResult::getQuestionText).toList());
+            }
+        });
+    }
+
+    boolean hasPending(String username) {
+        return pendingByUser.containsKey(username);
+    }
+
+    private void done(String username) {
+        pendingLock.lock();
+        try {
+            pendingByUser.computeIfPresent(username, (user, count) -> count > 1 ? count - 1 : null);
+            persisted.signalAll();
+        } finally {
+            pendingLock.unlock();
+        }
+    }
+
+    void spill(List<QuizResult> results) {
+        spillLock.lock();
+        try (BufferedWriter writer = Files.newBufferedWriter(spillFile, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (QuizResult result : results) {
+                writer.write(objectMapper.writeValueAsString(SpilledResult.of(result)));
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            logger.error("Could not spill {} quiz results to {}; they are lost.", results.size(), spillFile, e);
+            return;
+        } finally {
+            spillLock.unlock();
+        }
+        logger.warn("Spilled {} quiz results to {}.", results.size(), spillFile);
+    }
+
+    void replaySpillFile() {
+        spillLock.lock();
+        try {
+            replay();
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private void replay() {
+        if (!Files.exists(spillFile)) return;
+        List<SpilledResult> spilled = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(spillFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) spilled.add(objectMapper.readValue(line, SpilledResult.class));
+            }
+        } catch (IOException e) {
+            logger.error("Could not read spilled quiz results from {}; leaving the file in place.", spillFile, e);
+            return;
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status -> persist(spilled.stream()
+                    .map(result -> result.toQuizResult(userRepository.getReferenceById(result.userId())))
+                    .toList()));
+            Files.delete(spillFile);
+            logger.info("Replayed {} spilled quiz results from {}.", spilled.size(), spillFile);
+        } catch (IOException | RuntimeException e) {
+            logger.error("Could not replay spilled quiz results from {}; leaving the file in place.", spillFile, e);
+        }
+    }
+
+    /** The spill file form of a quiz result: plain values only, one JSON object per line. */
+    record SpilledResult(Long userId, String topic, int score, int total, LocalDateTime timestamp, List<SpilledQuestion> questions) {
+
+        record SpilledQuestion(String questionText, String userAnswer, String correctAnswer, boolean correct, String explanation) {}
+
+        static SpilledResult of(QuizResult result) {
+            List<SpilledQuestion> questions = result.getQuestionResults().stream()
+                    .map(q -> new SpilledQuestion(q.getQuestionText(), q.getUserAnswer(), q.getCorrectAnswer(), q.isCorrect(), q.getExplanation()))
+                    .toList();
+            return new SpilledResult(result.getUser().getId(), result.getTopic(), result.getScore(), result.getTotal(),
+                    result.getTimestamp(), questions);
+        }
+
+        QuizResult toQuizResult(User user) {
+            QuizResult result = new QuizResult();
+            result.setUser(user);
+            result.setTopic(topic);
+            result.setScore(score);
+            result.setTotal(total);
+            result.setTimestamp(timestamp);
+            List<QuestionResult> questionResults = new ArrayList<>();
+            for (SpilledQuestion question : questions) {
+                QuestionResult questionResult = new QuestionResult();
+                questionResult.setQuestionText(question.questionText());
+                questionResult.setUserAnswer(question.userAnswer());
+                questionResult.setCorrectAnswer(question.correctAnswer());
+                questionResult.setCorrect(question.correct());
+                questionResult.setExplanation(question.explanation());
+                questionResults.add(questionResult);
+            }
+            result.setQuestionResults(questionResults);
+            return result;
+        }
+    }
+}
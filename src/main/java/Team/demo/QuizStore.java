@@ -0,0 +1,38 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Holds quizzes that have been handed to a user but not submitted yet, keyed by an opaque
+ * quiz id that travels with the quiz form. Keeping them out of the HTTP session lets any
+ * node behind a load balancer grade the submission. Requests whose quiz is still to be
+ * streamed are held the same way. Entries expire after a TTL.
+ */
+public interface QuizStore {
+
+    static String newQuizId() {
+        return UUID.randomUUID().toString();
+    }
+
+    void put(String quizId, String username, Quiz quiz);
+
+    /** Returns the quiz only if it exists, hasn't expired and belongs to the given user. */
+    Optional<Quiz> get(String quizId, String username);
+
+    void remove(String quizId);
+
+    /**
+     * Keeps a prepared request until its stream starts, possibly on another node. The request
+     * is stored without the user's seen questions (see {@link AiQuizService#withSeenQuestions}).
+     */
+    void putPending(String streamId, String username, QuizRequest request);
+
+    /** Removes and returns the user's pending request, so only one stream can ever start it. */
+    Optional<QuizRequest> takePending(String streamId, String username);
+
+    /** Drops expired quizzes; called periodically. */
+    void evictExpired();
+}
@@ -0,0 +1,211 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maps free-text topics to canonical topic ids, so "Java Streams", "java stream API" and
+ * "Streams in Java 8" share one bank, one set of fingerprints and one line of statistics.
+ * Topics are compared on the character trigrams of their stemmed words (stop words left out,
+ * word order ignored) and match when their Dice similarity reaches the threshold and every
+ * stemmed word of the shorter topic also appears in the longer one. The word check keeps
+ * different subjects apart that share most of their trigrams, such as "Inorganic Chemistry"
+ * and "Organic Chemistry".
+ * Topics naming different numbers never match, so "World War 1" stays apart from "World War 2".
+ * <p>
+ * A canonical id is the normalized text of the first topic seen for it, so an id never
+ * changes once issued and keys written before this index existed stay valid. Ids already
+ * stored in the database are registered at startup, before any new topic is matched.
+ */
+@Component
+public class TopicIndex {
+
+    private static final Set<String> STOP_WORDS = Set.of(
+            "a", "an", "the", "and", "or", "of", "in", "on", "for", "to", "with", "about", "using", "into",
+            "intro", "introduction", "basics", "fundamentals", "overview", "quiz");
+
+    private final boolean enabled;
+    private final double threshold;
+    private final int maxTopics;
+    private final MeterRegistry meterRegistry;
+
+    // Normalized text -> canonical id, for every spelling already resolved
+    private final Map<String, String> aliases = new ConcurrentHashMap<>();
+    // Guarded by this: the canonical topics and, per trigram, the topics that contain it
+    private final List<Topic> topics = new ArrayList<>();
+    private final Map<String, List<Topic>> postings = new HashMap<>();
+
+    public TopicIndex(@Value("${quiz.topics.fuzzy.enabled:true}") boolean enabled,
+                      @Value("${quiz.topics.similarity-threshold:0.8}") double threshold,
+                      @Value("${quiz.topics.max-topics:10000}") int maxTopics,
+                      MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.threshold = threshold;
+        this.maxTopics = maxTopics;
+        this.meterRegistry = meterRegistry;
+    }
+
+    /** The canonical id for the topic; the normalized topic itself if nothing similar is known. */
+    public String canonicalId(String topic) {
+        String normalized = QuestionBank.normalize(topic);
+        if (!enabled || normalized.isEmpty()) {
+            return normalized;
+        }
+        String known = aliases.get(normalized);
+        if (known != null) {
+            count("known");
+            return known;
+        }
+        synchronized (this) {
+            known = aliases.get(normalized);
+            if (known != null) {
+                count("known");
+                return known;
+            }
+            Topic candidate = Topic.of(normalized);
+            Topic match = bestMatch(candidate);
+            String id;
+            if (match != null) {
+                id = match.id();
+                count("matched");
+            } else {
+                id = normalized;
+                add(candidate);
+                count("new");
+            }
+            remember(normalized, id);
+            return id;
+        }
+    }
+
+    /** Registers an id that is already in use as canonical, without matching it against others. */
+    public synchronized void register(String topicKey) {
+        String normalized = QuestionBank.normalize(topicKey);
+        if (!enabled || normalized.isEmpty() || aliases.containsKey(normalized)) {
+            return;
+        }
+        add(Topic.of(normalized));
+        remember(normalized, normalized);
+    }
+
+    public synchronized int size() {
+        return topics.size();
+    }
+
+    // Counts trigrams shared with every topic that has at least one, then keeps the most similar
+    private Topic bestMatch(Topic candidate) {
+        if (candidate.grams().isEmpty()) {
+            return null;
+        }
+        Map<Topic, Integer> shared = new HashMap<>();
+        for (String gram : candidate.grams()) {
+            for (Topic topic : postings.getOrDefault(gram, List.of())) {
+                shared.merge(topic, 1, Integer::sum);
+            }
+        }
+        Topic best = null;
+        double bestScore = threshold;
+        for (Map.Entry<Topic, Integer> entry : shared.entrySet()) {
+            Topic topic = entry.getKey();
+            if (!candidate.numbersCompatible(topic)) continue;
+            double dice = 2.0 * entry.getValue() / (candidate.grams().size() + topic.grams().size());
+            // Ties go to the older topic, so the result doesn't depend on hash order
+            boolean better = dice > bestScore || (dice == bestScore && (best == null || topic.order() < best.order()));
+            if (better && candidate.wordsCovered(topic)) {
+                best = topic;
+                bestScore = dice;
+            }
+        }
+        return best;
+    }
+
+    private void add(Topic topic) {
+        if (topics.size() >= maxTopics) {
+            return; // Still usable as an id, just not matched against
+        }
+        Topic indexed = new Topic(topic.id(), topic.words(), topic.grams(), topic.numbers(), topics.size());
+        topics.add(indexed);
+        for (String gram : indexed.grams()) {
+            postings.computeIfAbsent(gram, k -> new ArrayList<>()).add(indexed);
+        }
+    }
+
+    private void remember(String normalized, String id) {
+        if (aliases.size() < maxTopics * 4) {
+            aliases.put(normalized, id);
+        }
+    }
+
+    private void count(String outcome) {
+        meterRegistry.counter("quiz.topics.resolved", "outcome", outcome).increment();
+    }
+
+    /** A canonical topic: its id, its stemmed words and their trigrams, and the numbers it names. */
+    private record Topic(String id, Set<String> words, Set<String> grams, Set<String> numbers, int order) {
+
+        static Topic of(String normalized) {
+            Set<String> words = new HashSet<>();
+            Set<String> grams = new HashSet<>();
+            Set<String> numbers = new TreeSet<>();
+            for (String word : normalized.split("[^\\p{L}\\p{N}]+")) {
+                if (word.isEmpty() || STOP_WORDS.contains(word)) continue;
+                if (word.chars().allMatch(Character::isDigit)) {
+                    numbers.add(word.replaceFirst("^0+(?=.)", ""));
+                    continue;
+                }
+                String stemmed = stem(word);
+                words.add(stemmed);
+                String padded = " " + stemmed + " ";
+                for (int i = 0; i + 3 <= padded.length(); i++) {
+                    grams.add(padded.substring(i, i + 3));
+                }
+            }
+            return new Topic(normalized, words, grams, numbers, -1);
+        }
+
+        // Every word of the topic with fewer words has a counterpart in the other one
+        boolean wordsCovered(Topic other) {
+            Set<String> fewer = words.size() <= other.words.size() ? words : other.words;
+            Set<String> more = fewer == words ? other.words : words;
+            return more.containsAll(fewer);
+        }
+
+        // A topic without numbers is compatible with any; two with numbers must name the same ones
+        boolean numbersCompatible(Topic other) {
+            return numbers.isEmpty() || other.numbers.isEmpty() || numbers.equals(other.numbers);
+        }
+
+        // Identity, not content: each canonical topic is its own map key
+        @Override
+        public boolean equals(Object o) {
+            return this == o;
+        }
+
+        @Override
+        public int hashCode() {
+            return System.identityHashCode(this);
+        }
+    }
+
+    // Light suffix stripping: enough to fold plurals and -ing/-ed forms, not a full Porter stemmer
+    static String stem(String word) {
+        if (word.length() > 4 && word.endsWith("ies")) return word.substring(0, word.length() - 3) + "y";
+        if (word.length() > 4 && word.endsWith("sses")) return word.substring(0, word.length() - 2);
+        if (word.length() > 5 && word.endsWith("ing")) return word.substring(0, word.length() - 3);
+        if (word.length() > 4 && word.endsWith("ed")) return word.substring(0, word.length() - 2);
+        if (word.length() > 3 && word.endsWith("s") && !word.endsWith("ss") && !word.endsWith("us") && !word.endsWith("is")) {
+            return word.substring(0, word.length() - 1);
+        }
+        return word;
+    }
+}
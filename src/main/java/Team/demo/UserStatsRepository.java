@@ -0,0 +1,24 @@
+package Team.demo;
+
+import Team.demo.model.UserStats;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface UserStatsRepository extends JpaRepository<UserStats, Long> {
+    Optional<UserStats> findByUser_UsernameAndTopicKey(String username, String topicKey);
+
+    List<UserStats> findByUser_IdAndTopicKeyIn(Long userId, Collection<String> topicKeys);
+
+    /** The user's most taken topics, leaving out the all-topics row. */
+    @Query("select s from UserStats s where s.user.username = :username and s.topicKey <> '" + UserStats.ALL_TOPICS + "' " +
+            "order by s.quizzes desc, s.topicKey")
+    List<UserStats> findTopTopics(@Param("username") String username, Pageable pageable);
+
+    @Query("select distinct s.topicKey from UserStats s where s.topicKey <> '" + UserStats.ALL_TOPICS + "' order by s.topicKey")
+    List<String> findTopicKeys();
+}
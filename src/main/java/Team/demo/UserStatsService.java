@@ -0,0 +1,111 @@
+package Team.demo;
+
+import Team.demo.model.QuizResult;
+import Team.demo.model.User;
+import Team.demo.model.UserStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Keeps each user's quiz totals (overall and per topic) up to date as results come in,
+ * so the profile page reads a handful of rows instead of the user's whole history.
+ */
+@Service
+public class UserStatsService {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserStatsService.class);
+
+    private final UserStatsRepository userStatsRepository;
+    private final QuizResultRepository quizResultRepository;
+    private final UserRepository userRepository;
+    private final TopicIndex topicIndex;
+
+    public UserStatsService(UserStatsRepository userStatsRepository, QuizResultRepository quizResultRepository,
+                            UserRepository userRepository, TopicIndex topicIndex) {
+        this.userStatsRepository = userStatsRepository;
+        this.quizResultRepository = quizResultRepository;
+        this.userRepository = userRepository;
+        this.topicIndex = topicIndex;
+    }
+
+    /** Saves a quiz result and adds it to the user's totals in the same transaction. */
+    @Transactional
+    public QuizResult saveResult(QuizResult result) {
+        QuizResult saved = quizResultRepository.save(result);
+        User user = userRepository.lockById(result.getUser().getId()).orElseThrow();
+        String topicKey = topicKey(result.getTopic());
+
+        Map<String, UserStats> stats = new HashMap<>();
+        for (UserStats row : userStatsRepository.findByUser_IdAndTopicKeyIn(user.getId(), List.of(UserStats.ALL_TOPICS, topicKey))) {
+            stats.put(row.getTopicKey(), row);
+        }
+        stats.computeIfAbsent(UserStats.ALL_TOPICS, k -> new UserStats(user, k, null)).add(result.getScore(), result.getTotal());
+        UserStats topicStats = stats.computeIfAbsent(topicKey, k -> new UserStats(user, k, result.getTopic()));
+        topicStats.setTopic(result.getTopic());
+        topicStats.add(result.getScore(), result.getTotal());
+        userStatsRepository.saveAll(stats.values());
+        return saved;
+    }
+
+    /** The user's overall totals (all zero if they haven't finished a quiz yet). */
+    public UserStats overall(String username) {
+        return userStatsRepository.findByUser_UsernameAndTopicKey(username, UserStats.ALL_TOPICS).orElseGet(UserStats::new);
+    }
+
+    public List<UserStats> topTopics(String username, int limit) {
+        return userStatsRepository.findTopTopics(username, PageRequest.of(0, limit));
+    }
+
+    /** Recomputes every user's totals from the stored quiz results. */
+    @Transactional
+    public void rebuild() {
+        userStatsRepository.deleteAllInBatch();
+        Map<Long, Map<String, UserStats>> byUser = new HashMap<>();
+        for (QuizResultRepository.TopicTotals totals : quizResultRepository.totalsByUserAndTopic()) {
+            if (totals.getUserId() == null) continue;
+            User user = userRepository.getReferenceById(totals.getUserId());
+            Map<String, UserStats> stats = byUser.computeIfAbsent(totals.getUserId(), id -> new HashMap<>());
+            // Topics that only differ in case or spacing share one row
+            for (String key : List.of(UserStats.ALL_TOPICS, topicKey(totals.getTopic()))) {
+                UserStats row = stats.computeIfAbsent(key, k -> new UserStats(user, k, k.equals(UserStats.ALL_TOPICS) ? null : totals.getTopic()));
+                row.setQuizzes(row.getQuizzes() + totals.getQuizzes());
+                row.setScore(row.getScore() + totals.getScore());
+                row.setQuestions(row.getQuestions() + totals.getQuestions());
+            }
+        }
+        byUser.values().forEach(stats -> userStatsRepository.saveAll(stats.values()));
+        logger.info("Rebuilt quiz statistics for {} users.", byUser.size());
+    }
+
+    /** Keeps the topic keys already stored canonical, so new spellings resolve to them. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    public void registerTopicKeys() {
+        userStatsRepository.findTopicKeys().forEach(topicIndex::register);
+    }
+
+    /** Builds the statistics from existing history the first time the app starts with this feature. */
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional
+    public void rebuildIfEmpty() {
+        if (userStatsRepository.count() == 0 && quizResultRepository.count() > 0) {
+            rebuild();
+        }
+    }
+
+    private String topicKey(String topic) {
+        return Optional.ofNullable(topic).map(topicIndex::canonicalId).filter(key -> !key.isEmpty()).orElse("(untitled)");
+    }
+}
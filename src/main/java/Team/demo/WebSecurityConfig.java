@@ -1,27 +1,72 @@
 package Team.demo;
 
+import jakarta.servlet.DispatcherType;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
+import org.springframework.security.authentication.ProviderManager;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.userdetails.User;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.security.provisioning.InMemoryUserDetailsManager;
 import org.springframework.security.web.SecurityFilterChain;
 
 @Configuration
 @EnableWebSecurity
 public class WebSecurityConfig {
 
+    /**
+     * Actuator endpoints: health is open to the load balancer, everything else (metrics,
+     * prometheus) needs the scrape account over HTTP Basic. Kept apart from the pages so
+     * their login stays a form rather than a Basic prompt. The scrape account is known to
+     * this chain only, so it never shadows an app user of the same name.
+     */
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http, PasswordEncoder passwordEncoder,
+                                                   @Value("${quiz.metrics.scrape.username:prometheus}") String scrapeUsername,
+                                                   @Value("${quiz.metrics.scrape.password:}") String scrapePassword) throws Exception {
+        // The account exists only once a password is configured
+        InMemoryUserDetailsManager scrapers = new InMemoryUserDetailsManager();
+        if (!scrapePassword.isBlank()) {
+            scrapers.createUser(User.withUsername(scrapeUsername).password(passwordEncoder.encode(scrapePassword)).roles("METRICS").build());
+        }
+        DaoAuthenticationProvider scrapeAuthentication = new DaoAuthenticationProvider();
+        scrapeAuthentication.setUserDetailsService(scrapers);
+        scrapeAuthentication.setPasswordEncoder(passwordEncoder);
+
+        http
+                .securityMatcher("/actuator/**")
+                // No parent manager: app users can't sign in here, and the scrape account can't sign in elsewhere
+                .authenticationManager(new ProviderManager(scrapeAuthentication))
+                .authorizeHttpRequests(requests -> requests
+                        .requestMatchers("/actuator/health").permitAll()
+                        .anyRequest().hasRole("METRICS")
+                )
+                .httpBasic(basic -> {})
+                .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+                .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
                 .authorizeHttpRequests(requests -> requests
                         // Allow access to login, registration, and static resources without authentication
                         .requestMatchers("/login", "/register", "/styles.css", "/css/**", "/js/**", "/images/**").permitAll()
+                        // Error pages keep the status of the request that failed, e.g. a 401 from the actuator chain
+                        .dispatcherTypeMatchers(DispatcherType.ERROR).permitAll()
                         // All other pages require a user to be logged in
-                        .anyRequest().authenticated()
+                        .anyRequest().hasRole("USER")
                 )
                 .formLogin(form -> form
                         .loginPage("/login") // Specify the custom login page URL
@@ -41,7 +86,7 @@ public class WebSecurityConfig {
     public UserDetailsService userDetailsService(UserRepository userRepository) {
         return username -> userRepository.findByUsername(username)
                 // Map your custom User entity to Spring Security's User object
-                .map(user -> org.springframework.security.core.userdetails.User.withUsername(user.getUsername())
+                .map(user -> User.withUsername(user.getUsername())
                         .password(user.getPassword())
                         .roles("USER")
                         .build())
@@ -0,0 +1,53 @@
+package Team.demo.model;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * A compact record of a question a user has already been asked on a topic:
+ * an exact hash of the normalized text plus a MinHash signature for near-duplicates.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_fingerprint_user_topic", columnList = "user_id, topicKey, createdAt"))
+public class QuestionFingerprint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_fingerprint_seq")
+    @SequenceGenerator(name = "question_fingerprint_seq", sequenceName = "question_fingerprint_seq", allocationSize = 50)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private String topicKey;
+    private long textHash;
+
+    @Column(length = 128)
+    private byte[] minHash;
+
+    @Column(length = 1000) // Kept so a small sample can still be quoted in the prompt
+    private String questionText;
+
+    private LocalDateTime createdAt;
+
+    public QuestionFingerprint() {
+        this.createdAt = LocalDateTime.now();
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    public String getTopicKey() { return topicKey; }
+    public void setTopicKey(String topicKey) { this.topicKey = topicKey; }
+    public long getTextHash() { return textHash; }
+    public void setTextHash(long textHash) { this.textHash = textHash; }
+    public byte[] getMinHash() { return minHash; }
+    public void setMinHash(byte[] minHash) { this.minHash = minHash; }
+    public String getQuestionText() { return questionText; }
+    public void setQuestionText(String questionText) { this.questionText = questionText; }
+    public LocalDateTime getCreatedAt() { return createdAt; }
+    public void setCreatedAt(LocalDateTime createdAt) { this.createdAt = createdAt; }
+}
@@ -1,14 +1,22 @@
 package Team.demo.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 
 @Entity
+@Table(indexes = @Index(name = "idx_question_result_quiz", columnList = "quiz_result_id"))
 public class QuestionResult {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "question_result_seq")
+    @SequenceGenerator(name = "question_result_seq", sequenceName = "question_result_seq", allocationSize = 50)
     private Long id;
 
+    @JsonIgnore
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "quiz_result_id")
+    private QuizResult quizResult;
+
     @Column(length = 1000) // Allow for longer question text
     private String questionText;
     private String userAnswer;
@@ -23,6 +31,8 @@ public class QuestionResult {
     // Getters and Setters
     public Long getId() { return id; }
     public void setId(Long id) { this.id = id; }
+    public QuizResult getQuizResult() { return quizResult; }
+    public void setQuizResult(QuizResult quizResult) { this.quizResult = quizResult; }
     public String getQuestionText() { return questionText; }
     public void setQuestionText(String questionText) { this.questionText = questionText; }
     public String getUserAnswer() { return userAnswer; }
@@ -6,10 +6,16 @@ import java.util.ArrayList;
 import java.util.List;
 
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_quiz_result_user_timestamp", columnList = "user_id, timestamp, id"),
+        @Index(name = "idx_quiz_result_topic", columnList = "topic")
+})
 public class QuizResult {
 
+    // Sequence ids (allocated 50 at a time) let Hibernate batch the inserts
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "quiz_result_seq")
+    @SequenceGenerator(name = "quiz_result_seq", sequenceName = "quiz_result_seq", allocationSize = 50)
     private Long id;
 
     private String topic;
@@ -17,12 +23,12 @@ public class QuizResult {
     private int total;
     private LocalDateTime timestamp;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
-    @OneToMany(cascade = CascadeType.ALL, orphanRemoval = true)
-    @JoinColumn(name = "quiz_result_id")
+    // Owned by QuestionResult.quizResult, so the foreign key goes in with each INSERT
+    @OneToMany(mappedBy = "quizResult", cascade = CascadeType.ALL, orphanRemoval = true)
     private List<QuestionResult> questionResults = new ArrayList<>();
 
     // Constructors
@@ -44,6 +50,9 @@ public class QuizResult {
     public User getUser() { return user; }
     public void setUser(User user) { this.user = user; }
     public List<QuestionResult> getQuestionResults() { return questionResults; }
-    public void setQuestionResults(List<QuestionResult> questionResults) { this.questionResults = questionResults; }
+    public void setQuestionResults(List<QuestionResult> questionResults) {
+        this.questionResults = questionResults;
+        questionResults.forEach(questionResult -> questionResult.setQuizResult(this));
+    }
 }
 
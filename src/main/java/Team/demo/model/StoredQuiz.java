@@ -0,0 +1,44 @@
+package Team.demo.model;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.JdbcTypeCode;
+import org.hibernate.type.SqlTypes;
+
+/**
+ * A row of the shared quiz store: an in-flight quiz, or a request whose quiz is still to be
+ * streamed, in its compact encoding, owned by one user until it expires. Mapped so Hibernate
+ * creates the table in each database's own dialect; JdbcQuizStore reads and writes it directly.
+ */
+@Entity
+@Table(name = "quiz_store", indexes = @Index(name = "idx_quiz_store_expires_at", columnList = "expiresAt"))
+public class StoredQuiz {
+
+    @Id
+    @Column(length = 36)
+    private String quizId;
+
+    @Column(nullable = false)
+    private String username;
+
+    @JdbcTypeCode(SqlTypes.LONG32VARBINARY) // bytea, longblob, ... rather than an oid or a short varbinary
+    @Column(nullable = false)
+    private byte[] data;
+
+    private boolean pending; // A request waiting for its stream rather than a quiz
+
+    private long expiresAt;
+
+    public StoredQuiz() {}
+
+    // Getters and Setters
+    public String getQuizId() { return quizId; }
+    public void setQuizId(String quizId) { this.quizId = quizId; }
+    public String getUsername() { return username; }
+    public void setUsername(String username) { this.username = username; }
+    public byte[] getData() { return data; }
+    public void setData(byte[] data) { this.data = data; }
+    public boolean isPending() { return pending; }
+    public void setPending(boolean pending) { this.pending = pending; }
+    public long getExpiresAt() { return expiresAt; }
+    public void setExpiresAt(long expiresAt) { this.expiresAt = expiresAt; }
+}
@@ -0,0 +1,65 @@
+package Team.demo.model;
+
+import jakarta.persistence.*;
+
+/**
+ * Running totals of a user's quiz results, kept up to date as quizzes are submitted.
+ * There is one row per topic the user has taken, plus one row for all topics together.
+ */
+@Entity
+@Table(uniqueConstraints = @UniqueConstraint(name = "uk_user_stats_user_topic", columnNames = {"user_id", "topicKey"}))
+public class UserStats {
+
+    /** The topic key of the row that totals every topic. */
+    public static final String ALL_TOPICS = "*";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id")
+    private User user;
+
+    private String topicKey;
+    private String topic; // The topic as the user last typed it, for display
+
+    private long quizzes;
+    private long questions;
+    private long score;
+
+    public UserStats() {}
+
+    public UserStats(User user, String topicKey, String topic) {
+        this.user = user;
+        this.topicKey = topicKey;
+        this.topic = topic;
+    }
+
+    /** Folds one more quiz result into the totals. */
+    public void add(int quizScore, int quizTotal) {
+        quizzes++;
+        score += quizScore;
+        questions += quizTotal;
+    }
+
+    public double getAverageScore() {
+        return questions == 0 ? 0.0 : (100.0 * score) / questions;
+    }
+
+    // Getters and Setters
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public User getUser() { return user; }
+    public void setUser(User user) { this.user = user; }
+    public String getTopicKey() { return topicKey; }
+    public void setTopicKey(String topicKey) { this.topicKey = topicKey; }
+    public String getTopic() { return topic; }
+    public void setTopic(String topic) { this.topic = topic; }
+    public long getQuizzes() { return quizzes; }
+    public void setQuizzes(long quizzes) { this.quizzes = quizzes; }
+    public long getQuestions() { return questions; }
+    public void setQuestions(long questions) { this.questions = questions; }
+    public long getScore() { return score; }
+    public void setScore(long score) { this.score = score; }
+}
@@ -3,7 +3,7 @@ package Team.demo;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "gemini.api.key=test-key")
 class AiQuizApplicationTests {
 
 	@Test
@@ -0,0 +1,160 @@
+package Team.demo;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routes and hedges across local stub endpoints: "slow" answers after a delay, "fast"
+ * right away and "bad" right away with a body the attempt rejects as unusable.
+ */
+class AiRouterTests {
+
+	private HttpServer server;
+	private final Map<String, AtomicInteger> calls = new ConcurrentHashMap<>();
+	private final Map<String, Long> latencies = new ConcurrentHashMap<>();
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final ExecutorService executor = Executors.newCachedThreadPool();
+
+	// Returns the body unless it is "bad", like a parse that finds no valid questions
+	private final Function<AiProvider, String> attempt = provider -> {
+		String body = provider.generateContent("{}");
+		if (body.equals("bad")) throw new IllegalStateException("No valid questions from " + provider.getName());
+		return body;
+	};
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.setExecutor(Executors.newCachedThreadPool());
+		stub("slow", 2000, 200, "slow");
+		stub("fast", 0, 200, "fast");
+		stub("bad", 0, 200, "bad");
+		stub("down", 0, 503, "{}");
+		server.start();
+	}
+
+	@AfterEach
+	void stopStub() {
+		server.stop(0);
+		executor.shutdownNow();
+	}
+
+	@Test
+	void hedgesASlowPrimaryAndCancelsTheLoser() {
+		AiRouter router = router(List.of("slow", "fast"), true, 1);
+
+		long start = System.nanoTime();
+		assertEquals("fast", router.call(attempt));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+		assertEquals(1, meterRegistry.get("ai.hedge").tag("outcome", "launched").counter().count());
+		assertEquals(1, meterRegistry.get("ai.hedge").tag("outcome", "won").counter().count());
+
+		// The slow attempt was interrupted rather than left to finish
+		for (int i = 0; i < 50 && meterRegistry.find("gemini.call").tags("client", "slow", "outcome", "interrupted").timer() == null; i++) {
+			sleep(20);
+		}
+		assertEquals(1, meterRegistry.get("gemini.call").tags("client", "slow", "outcome", "interrupted").timer().count());
+	}
+
+	@Test
+	void failsOverAtOnceWhenThePrimaryIsUnusable() {
+		AiRouter router = router(List.of("bad", "fast"), true, 1);
+
+		assertEquals("fast", router.call(attempt));
+		assertEquals(1, meterRegistry.get("ai.hedge").tag("outcome", "failover").counter().count());
+		assertEquals(1, calls.get("fast").get());
+	}
+
+	@Test
+	void doesNotHedgeBeyondTheBudget() {
+		AiRouter router = router(List.of("slow", "fast"), true, 0);
+
+		assertEquals("slow", router.call(attempt));
+		assertEquals(1, meterRegistry.get("ai.hedge").tag("outcome", "skipped").counter().count());
+		assertEquals(null, calls.get("fast"));
+	}
+
+	@Test
+	void routesToTheFastestProviderOnceEachIsMeasured() {
+		AiRouter router = router(List.of("slow", "fast"), false, 1, Duration.ofMillis(200));
+
+		// Both are measured first, in configured order
+		assertEquals("slow", router.call(attempt));
+		assertEquals("fast", router.call(attempt));
+		for (int i = 0; i < 3; i++) {
+			assertEquals("fast", router.call(attempt));
+		}
+		assertEquals(1, calls.get("slow").get());
+	}
+
+	@Test
+	void failsFastOnceEveryProviderIsDown() {
+		AiRouter router = router(List.of("down"), false, 1);
+
+		assertThrows(AiServiceException.class, () -> router.call(attempt));
+		assertThrows(CircuitOpenException.class, () -> router.call(attempt));
+	}
+
+	private AiRouter router(List<String> names, boolean hedging, double maxHedgeRatio) {
+		return router(names, hedging, maxHedgeRatio, Duration.ofMillis(2000));
+	}
+
+	private AiRouter router(List<String> names, boolean hedging, double maxHedgeRatio, Duration slowLatency) {
+		GeminiClient.Settings settings = new GeminiClient.Settings(Duration.ofSeconds(1), Duration.ofSeconds(5),
+				Duration.ofSeconds(10), 0, Duration.ofMillis(10), 1, Duration.ofMinutes(1));
+		List<GeminiClient> clients = names.stream()
+				.map(name -> new GeminiClient(name, "http://127.0.0.1:" + server.getAddress().getPort() + "/" + name + ":generateContent",
+						"", "test-key", settings, meterRegistry))
+				.toList();
+		latencies.put("slow", slowLatency.toMillis());
+		return new AiRouter(clients, executor, new AiRouter.Settings(true, hedging, Duration.ofMillis(300),
+				Duration.ofMillis(100), maxHedgeRatio, 1), meterRegistry);
+	}
+
+	private void stub(String name, long latencyMs, int status, String body) {
+		latencies.put(name, latencyMs);
+		server.createContext("/" + name, exchange -> {
+			callsTo(name).incrementAndGet();
+			sleep(latencies.get(name));
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			exchange.sendResponseHeaders(status, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			} catch (IOException e) {
+				// The client hung up: the hedged request was cancelled
+			}
+		});
+	}
+
+	private AtomicInteger callsTo(String name) {
+		return calls.computeIfAbsent(name, k -> new AtomicInteger());
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
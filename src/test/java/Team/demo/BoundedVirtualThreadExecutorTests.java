@@ -0,0 +1,86 @@
+package Team.demo;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@EnabledForJreRange(min = JRE.JAVA_21) // Virtual threads
+class BoundedVirtualThreadExecutorTests {
+
+	@Test
+	void runsAtMostMaxConcurrencyTasksAtOnce() throws InterruptedException {
+		BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("bounded-", 3, 20);
+		AtomicInteger running = new AtomicInteger();
+		AtomicInteger peak = new AtomicInteger();
+		CountDownLatch done = new CountDownLatch(20);
+
+		for (int i = 0; i < 20; i++) {
+			executor.execute(() -> {
+				peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+				sleep(20);
+				running.decrementAndGet();
+				done.countDown();
+			});
+		}
+
+		assertTrue(done.await(10, TimeUnit.SECONDS));
+		assertEquals(3, peak.get());
+	}
+
+	@Test
+	void rejectsTasksBeyondTheQueueAndAdmitsThemOnceItDrains() throws InterruptedException {
+		BoundedVirtualThreadExecutor executor = new BoundedVirtualThreadExecutor("bounded-", 2, 1);
+		CountDownLatch release = new CountDownLatch(1);
+		CountDownLatch done = new CountDownLatch(4);
+
+		for (int i = 0; i < 3; i++) {
+			executor.execute(() -> {
+				await(release);
+				done.countDown();
+			});
+		}
+		assertThrows(RejectedExecutionException.class, () -> executor.execute(done::countDown));
+
+		release.countDown();
+		assertTrue(admitted(executor, done::countDown));
+		assertTrue(done.await(5, TimeUnit.SECONDS));
+	}
+
+	// Slots free up just after the tasks holding them finish, so retry for a while
+	private static boolean admitted(BoundedVirtualThreadExecutor executor, Runnable task) throws InterruptedException {
+		for (int i = 0; i < 250; i++) {
+			try {
+				executor.execute(task);
+				return true;
+			} catch (RejectedExecutionException e) {
+				Thread.sleep(20);
+			}
+		}
+		return false;
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
@@ -0,0 +1,86 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.pdfbox.pdmodel.PDDocument;
+import org.apache.pdfbox.pdmodel.PDPage;
+import org.apache.pdfbox.pdmodel.PDPageContentStream;
+import org.apache.pdfbox.pdmodel.font.PDType1Font;
+import org.apache.pdfbox.pdmodel.font.Standard14Fonts;
+import org.apache.poi.xwpf.usermodel.XWPFDocument;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockMultipartFile;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DocumentTextExtractorTests {
+
+	private DocumentTextCache cache;
+	private DocumentTextExtractor extractor;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		cache = new DocumentTextCache(1_000_000, "");
+		extractor = new DocumentTextExtractor(cache, 100, new SimpleMeterRegistry());
+	}
+
+	@Test
+	void stopsReadingTextAtTheBudget() throws IOException {
+		MockMultipartFile txt = new MockMultipartFile("file", "notes.txt", "text/plain", "x".repeat(10_000).getBytes(StandardCharsets.UTF_8));
+
+		assertEquals(100, extractor.extract(txt).text().length());
+	}
+
+	@Test
+	void replacesMalformedUtf8InText() throws IOException {
+		MockMultipartFile txt = new MockMultipartFile("file", "notes.txt", "text/plain", "Café crème".getBytes(StandardCharsets.ISO_8859_1));
+
+		assertEquals("Caf\uFFFD cr\uFFFDme", extractor.extract(txt).text());
+	}
+
+	@Test
+	void extractsPdfPageByPageUpToTheBudget() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (PDDocument document = new PDDocument()) {
+			for (int i = 1; i <= 20; i++) {
+				PDPage page = new PDPage();
+				document.addPage(page);
+				try (PDPageContentStream content = new PDPageContentStream(document, page)) {
+					content.beginText();
+					content.setFont(new PDType1Font(Standard14Fonts.FontName.HELVETICA), 12);
+					content.newLineAtOffset(50, 700);
+					content.showText("Page " + i + " talks about photosynthesis.");
+					content.endText();
+				}
+			}
+			document.save(out);
+		}
+
+		String text = extractor.extract(new MockMultipartFile("file", "notes.pdf", "application/pdf", out.toByteArray())).text();
+		assertEquals(100, text.length());
+		assertTrue(text.startsWith("Page 1 talks about photosynthesis."));
+	}
+
+	@Test
+	void extractsDocxParagraphsAndCachesByContent() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (XWPFDocument document = new XWPFDocument()) {
+			document.createParagraph().createRun().setText("Chlorophyll absorbs light.");
+			document.createParagraph().createRun().setText("Plants release oxygen.");
+			document.write(out);
+		}
+		MockMultipartFile docx = new MockMultipartFile("file", "notes.docx", "application/octet-stream", out.toByteArray());
+
+		DocumentTextExtractor.ExtractedDocument first = extractor.extract(docx);
+		DocumentTextExtractor.ExtractedDocument second = extractor.extract(docx);
+		assertEquals("Chlorophyll absorbs light.\nPlants release oxygen.\n", first.text());
+		assertEquals(first, second);
+		assertEquals(1, cache.getHits());
+	}
+
+}
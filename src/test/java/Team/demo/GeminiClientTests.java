@@ -0,0 +1,169 @@
+package Team.demo;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the client against a local stub server that injects errors and latency.
+ */
+class GeminiClientTests {
+
+	private HttpServer server;
+	private final AtomicInteger calls = new AtomicInteger();
+	private volatile int failuresBeforeSuccess;
+	private volatile int failureStatus = 503;
+	private volatile long latencyMs;
+	private volatile long streamStallMs;
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+	@BeforeEach
+	void startStub() throws IOException {
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/", exchange -> {
+			int call = calls.incrementAndGet();
+			sleep(latencyMs);
+			boolean fail = call <= failuresBeforeSuccess;
+			String body = fail ? "{}" : exchange.getRequestURI().getPath().endsWith(":streamGenerateContent")
+					? "data: {\"n\":1}\n\ndata: {\"n\":2}\n\n"
+					: "{\"candidates\":[]}";
+			byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+			if (streamStallMs > 0 && !fail) {
+				// Sends the first event, then stalls before the rest
+				exchange.sendResponseHeaders(200, 0);
+				try (OutputStream out = exchange.getResponseBody()) {
+					out.write("data: {\"n\":1}\n\n".getBytes(StandardCharsets.UTF_8));
+					out.flush();
+					sleep(streamStallMs);
+					out.write(bytes);
+				} catch (IOException e) {
+					// The client gave up on the stream
+				}
+				return;
+			}
+			exchange.sendResponseHeaders(fail ? failureStatus : 200, bytes.length);
+			try (OutputStream out = exchange.getResponseBody()) {
+				out.write(bytes);
+			}
+		});
+		server.start();
+	}
+
+	@AfterEach
+	void stopStub() {
+		server.stop(0);
+	}
+
+	@Test
+	void retriesServerErrorsUntilSuccess() {
+		failuresBeforeSuccess = 2;
+		GeminiClient client = client(2, 10, Duration.ofSeconds(5));
+
+		assertEquals("{\"candidates\":[]}", client.generateContent("{}"));
+		assertEquals(3, calls.get());
+	}
+
+	@Test
+	void recordsCallOutcomesAndRetries() {
+		failuresBeforeSuccess = 1;
+		GeminiClient client = client(2, 10, Duration.ofSeconds(5));
+
+		client.generateContent("{}");
+		assertEquals(1, meterRegistry.get("gemini.call").tags("endpoint", "generate", "outcome", "success").timer().count());
+		assertEquals(1, meterRegistry.get("gemini.call.retries").tag("reason", "server_error").counter().count());
+		assertEquals(2, meterRegistry.get("gemini.request.size").summary().totalAmount());
+
+		failuresBeforeSuccess = Integer.MAX_VALUE;
+		failureStatus = 400;
+		assertThrows(AiServiceException.class, () -> client.generateContent("{}"));
+		assertEquals(1, meterRegistry.get("gemini.call").tag("outcome", "client_error").timer().count());
+	}
+
+	@Test
+	void doesNotRetryClientErrors() {
+		failuresBeforeSuccess = 1;
+		failureStatus = 400;
+		GeminiClient client = client(2, 10, Duration.ofSeconds(5));
+
+		AiServiceException e = assertThrows(AiServiceException.class, () -> client.generateContent("{}"));
+		assertTrue(e.getMessage().contains("400"));
+		assertEquals(1, calls.get());
+	}
+
+	@Test
+	void opensCircuitAndFailsFastAfterRepeatedFailures() {
+		failuresBeforeSuccess = Integer.MAX_VALUE;
+		GeminiClient client = client(0, 3, Duration.ofSeconds(5));
+
+		for (int i = 0; i < 3; i++) {
+			assertThrows(AiServiceException.class, () -> client.generateContent("{}"));
+		}
+		assertThrows(CircuitOpenException.class, () -> client.generateContent("{}"));
+		assertEquals(3, calls.get());
+		assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+	}
+
+	@Test
+	void enforcesDeadlineOnSlowUpstream() {
+		latencyMs = 2000;
+		GeminiClient client = client(5, 10, Duration.ofMillis(300));
+
+		long start = System.nanoTime();
+		assertThrows(AiServiceException.class, () -> client.generateContent("{}"));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 1500);
+	}
+
+	@Test
+	void streamsSseDataLines() {
+		GeminiClient client = client(0, 10, Duration.ofSeconds(5));
+		List<String> events = new ArrayList<>();
+
+		client.streamGenerateContent("{}", events::add);
+		assertEquals(List.of("{\"n\":1}", "{\"n\":2}"), events);
+	}
+
+	@Test
+	void enforcesDeadlineOnStalledStream() {
+		streamStallMs = 3000;
+		GeminiClient client = client(0, 1, Duration.ofMillis(500));
+		List<String> events = new ArrayList<>();
+
+		long start = System.nanoTime();
+		AiServiceException e = assertThrows(AiServiceException.class, () -> client.streamGenerateContent("{}", events::add));
+		assertTrue(Duration.ofNanos(System.nanoTime() - start).toMillis() < 2000);
+		assertEquals("deadline_exceeded", e.getOutcome());
+		assertEquals(List.of("{\"n\":1}"), events);
+		assertEquals(CircuitBreaker.State.OPEN, client.getCircuitState());
+	}
+
+	private GeminiClient client(int maxRetries, int failureThreshold, Duration deadline) {
+		String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/v1beta/models/test:generateContent";
+		GeminiClient.Settings settings = new GeminiClient.Settings(Duration.ofSeconds(1), Duration.ofSeconds(5), deadline,
+				maxRetries, Duration.ofMillis(10), failureThreshold, Duration.ofMinutes(1));
+		return new GeminiClient("test", url, "", "test-key", settings, meterRegistry);
+	}
+
+	private static void sleep(long millis) {
+		try {
+			Thread.sleep(millis);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
@@ -0,0 +1,64 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GeminiCodecTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final GeminiCodec codec = new GeminiCodec(meterRegistry);
+
+	@Test
+	void encodesPromptsWithCharactersThatNeedEscaping() throws IOException {
+		String prompt = "Quote \"this\", a back\\slash,\ta tab\nand a newline";
+		String body = codec.encodeRequest(prompt);
+		assertEquals(prompt, new ObjectMapper().readTree(body).path("contents").path(0).path("parts").path(0).path("text").asText());
+	}
+
+	@Test
+	void readsFencedQuizTextAndSkipsUngradableQuestions() throws IOException {
+		String response = """
+				{"candidates":[{"content":{"parts":[{"text":"```json\\n{\\"questions\\":[\
+				{\\"question\\":\\"2 + 2?\\",\\"options\\":[\\"3\\",\\"4\\"],\\"correctOptionIndex\\":1,\\"explanation\\":\\"Basic sums.\\"},\
+				{\\"question\\":\\"No options here\\"}]}\\n```"}],"role":"model"},"finishReason":"STOP"}],"usageMetadata":{}}""";
+
+		List<Question> questions = codec.parseQuestions(codec.responseText(response), "Multiple Choice");
+
+		assertEquals(1, questions.size());
+		assertEquals("4", questions.get(0).getCorrectAnswerText());
+		assertEquals("Multiple Choice", questions.get(0).getType());
+		assertEquals("Basic sums.", questions.get(0).getExplanation());
+		assertEquals(1, meterRegistry.get("quiz.questions.skipped").tag("reason", "invalid").counter().count());
+	}
+
+	@Test
+	void parsesStreamedFillInTheBlankQuestions() throws IOException {
+		Question question = codec.parseQuestion("{\"question\":\"The sky is ____.\",\"answer\":\"blue\"}", "Fill in the Blank");
+		assertEquals("blue", question.getCorrectAnswerText());
+		assertNull(codec.parseQuestion("{\"question\":\"The sky is ____.\"}", "Fill in the Blank"));
+	}
+
+	@Test
+	void skipsQuestionsTheBankWouldReject() throws IOException {
+		assertNull(codec.parseQuestion("{\"question\":\"2 + 2?\",\"options\":[\"3\",\"4\"],\"correctOptionIndex\":2}", "Multiple Choice"));
+		assertNull(codec.parseQuestion("{\"question\":\"2 + 2?\",\"options\":[\"4\"],\"correctOptionIndex\":0}", "Multiple Choice"));
+		assertNull(codec.parseQuestion("{\"question\":\" \",\"options\":[\"3\",\"4\"],\"correctOptionIndex\":1}", "Multiple Choice"));
+		assertNull(codec.parseQuestion("{\"question\":\"What colour is the sky?\",\"answer\":\"blue\"}", "Fill in the Blank"));
+		assertEquals(4, meterRegistry.get("quiz.questions.skipped").tag("reason", "invalid").counter().count());
+	}
+
+	@Test
+	void rejectsTextWithoutAQuestionsArray() {
+		assertThrows(IOException.class, () -> codec.parseQuestions("Sorry, I can't help with that.", "Multiple Choice"));
+		assertThrows(IOException.class, () -> codec.parseQuestions("{\"quiz\":[]}", "Multiple Choice"));
+	}
+}
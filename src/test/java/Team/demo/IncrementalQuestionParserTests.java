@@ -0,0 +1,27 @@
+package Team.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class IncrementalQuestionParserTests {
+
+	@Test
+	void emitsQuestionsAcrossChunkBoundaries() {
+		String json = "```json\n{\"questions\":[{\"question\":\"What is {x}?\",\"options\":[\"a\",\"b\"],\"correctOptionIndex\":1},"
+				+ "{\"question\":\"Say \\\"hi\\\" ____\",\"answer\":\"}\"}]}\n```";
+		IncrementalQuestionParser parser = new IncrementalQuestionParser();
+		List<String> questions = new ArrayList<>();
+		for (int i = 0; i < json.length(); i += 7) {
+			questions.addAll(parser.feed(json.substring(i, Math.min(json.length(), i + 7))));
+		}
+
+		assertEquals(2, questions.size());
+		assertEquals("{\"question\":\"What is {x}?\",\"options\":[\"a\",\"b\"],\"correctOptionIndex\":1}", questions.get(0));
+		assertEquals("{\"question\":\"Say \\\"hi\\\" ____\",\"answer\":\"}\"}", questions.get(1));
+	}
+
+}
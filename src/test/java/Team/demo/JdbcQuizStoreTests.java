@@ -0,0 +1,59 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {"gemini.api.key=test-key", "quiz.store.backend=jdbc"})
+class JdbcQuizStoreTests {
+
+	@Autowired
+	private QuizStore quizStore;
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@Test
+	void storesQuizzesPerOwner() {
+		assertInstanceOf(JdbcQuizStore.class, quizStore);
+		String quizId = QuizStore.newQuizId();
+		quizStore.put(quizId, "alice", new Quiz("Art", "Hard", "Multiple Choice", List.of()));
+
+		assertEquals("Art", quizStore.get(quizId, "alice").orElseThrow().getTopic());
+		assertTrue(quizStore.get(quizId, "mallory").isEmpty());
+
+		quizStore.remove(quizId);
+		assertTrue(quizStore.get(quizId, "alice").isEmpty());
+	}
+
+	@Test
+	void putReplacesAnExistingQuiz() {
+		String quizId = QuizStore.newQuizId();
+		quizStore.put(quizId, "alice", new Quiz("Art", "Hard", "Multiple Choice", List.of()));
+		quizStore.put(quizId, "bob", new Quiz("Music", "Easy", "Multiple Choice", List.of()));
+
+		assertTrue(quizStore.get(quizId, "alice").isEmpty());
+		assertEquals("Music", quizStore.get(quizId, "bob").orElseThrow().getTopic());
+		assertEquals(1, jdbcTemplate.queryForObject("select count(*) from quiz_store where quiz_id = ?", Integer.class, quizId));
+	}
+
+	@Test
+	void pendingRequestsAreTakenOnceByTheirOwner() {
+		String streamId = QuizStore.newQuizId();
+		QuizRequest request = new QuizRequest("Art", "art", 5, "Hard", "Multiple Choice", "on the topic of 'Art'", false, null,
+				List.of(), QuestionFingerprintService.SeenQuestions.EMPTY);
+		quizStore.putPending(streamId, "alice", request);
+
+		assertTrue(quizStore.get(streamId, "alice").isEmpty());
+		assertTrue(quizStore.takePending(streamId, "mallory").isEmpty());
+		assertEquals(request, quizStore.takePending(streamId, "alice").orElseThrow());
+		assertTrue(quizStore.takePending(streamId, "alice").isEmpty());
+	}
+}
@@ -0,0 +1,42 @@
+package Team.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PassageSelectorTests {
+
+	private final PassageSelector selector = new PassageSelector(200);
+
+	@Test
+	void prefersPassagesAboutTheTopic() {
+		List<String> paragraphs = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			paragraphs.add("Chapter " + i + " covers the history of the Roman empire and its many emperors in some detail.");
+		}
+		paragraphs.set(37, "Photosynthesis converts light energy into chemical energy stored in glucose inside chloroplasts.");
+
+		String selected = selector.select(String.join("\n\n", paragraphs), "photosynthesis", 100);
+		assertTrue(selected.contains("Photosynthesis converts light energy"));
+		assertTrue(selected.length() <= 400);
+	}
+
+	@Test
+	void spreadsAcrossTheDocumentWithoutATopic() {
+		List<String> paragraphs = new ArrayList<>();
+		for (int i = 0; i < 50; i++) {
+			paragraphs.add("Section " + i + " " + "filler text ".repeat(15));
+		}
+
+		String selected = selector.select(String.join("\n\n", paragraphs), null, 200);
+		assertTrue(selected.contains("Section 0 "));
+		assertTrue(selected.contains("Section 25 "));
+		assertTrue(selected.contains("Section 37 "));
+		assertFalse(selected.contains("Section 1 "));
+	}
+
+}
@@ -0,0 +1,103 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PromptCompactorTests {
+
+	private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+	private final PromptCompactor compactor = new PromptCompactor(3, meterRegistry);
+
+	@Test
+	void dropsRunningHeadersFootersAndPageNumbers() {
+		List<String> body = List.of("Cells are the basic unit of life.", "Mitochondria produce ATP.", "Ribosomes build proteins.",
+				"The nucleus holds the genome.", "Membranes control what enters a cell.");
+		List<String> pages = new ArrayList<>();
+		for (int i = 1; i <= 5; i++) {
+			pages.add("Intro to Biology   -   Chapter 2\n\n" + body.get(i - 1) + "\n\nCopyright 2024 Example Press\nPage " + i + " of 5\n");
+		}
+
+		String compacted = compactor.compact(String.join("\f", pages));
+		assertFalse(compacted.contains("Intro to Biology"));
+		assertFalse(compacted.contains("Copyright"));
+		assertFalse(compacted.contains("\f"));
+		assertFalse(compacted.contains("of 5"));
+		assertTrue(compacted.contains("Ribosomes build proteins.\n\nThe nucleus holds the genome."));
+		assertTrue(meterRegistry.summary("quiz.prompt.compaction.saved.bytes").totalAmount() > 0);
+		assertTrue(meterRegistry.summary("quiz.prompt.compaction.saved.tokens").totalAmount() > 0);
+	}
+
+	@Test
+	void keepsRepeatedLinesWithoutPageBreaks() {
+		String text = "Example:\nfirst\n\nExample:\nsecond\n\nExample:\nthird";
+		assertEquals(text, compactor.compact(text));
+	}
+
+	@Test
+	void dropsPageNumbersOnlyAtTheTopOrBottomOfAPage() {
+		String text = "12\nThe war ended in\n1945\nafter six years.\n13\n\f14\nSteps:\n1\n2\n\n- 15 -";
+		assertEquals("The war ended in\n1945\nafter six years.\n\nSteps:\n1\n2", compactor.compact(text));
+	}
+
+	@Test
+	void keepsBareNumbersWithoutPageBreaks() {
+		String text = "Answers:\n42\n7\n1999";
+		assertEquals(text, compactor.compact(text));
+	}
+
+	@Test
+	void joinsHyphenatedWordsAndCollapsesWhitespace() {
+		String compacted = compactor.compact("  The  chloro-\nplast   stores\t\tenergy.  \n\n\n\nNext   paragraph.");
+		assertEquals("The chloroplast stores energy.\n\nNext paragraph.", compacted);
+	}
+
+	@Test
+	void keepsTheHyphenOfCompoundsWhoseHalvesAreWords() {
+		String compacted = compactor.compact("A well-\nknown result. It is well tested and known to hold.");
+		assertEquals("A well-known result. It is well tested and known to hold.", compacted);
+	}
+
+	@Test
+	void joinsABrokenWordThatOccursElsewhere() {
+		String compacted = compactor.compact("We checked every-\nthing. Everything was fine, every thing in its place.");
+		assertEquals("We checked everything. Everything was fine, every thing in its place.", compacted);
+	}
+
+	@Test
+	void fitsTextToTheTokenBudgetAtAParagraphBoundary() {
+		String text = ("A paragraph about plate tectonics and how continents drift over time.\n\n").repeat(200).strip();
+		String fitted = compactor.fit(text, 500);
+		assertTrue(PromptCompactor.estimateTokens(fitted) <= 500);
+		assertTrue(PromptCompactor.estimateTokens(fitted) > 400);
+		assertTrue(fitted.endsWith("over time."));
+		assertEquals("short", compactor.fit("short", 500));
+	}
+
+	@Test
+	void fitsNothingIntoAnEmptyOrNegativeBudget() {
+		String text = "The mitochondria is the powerhouse of the cell. It makes ATP.";
+		assertEquals("", compactor.fit(text, 0));
+		assertEquals("", compactor.fit(text, -40));
+	}
+
+	@Test
+	void fitsListsByDroppingTheLastEntries() {
+		List<String> sample = List.of("What is a cell?", "What does a ribosome do?", "Name the powerhouse of the cell.");
+		assertEquals(sample, compactor.fit(sample, 100));
+		assertEquals(sample.subList(0, 1), compactor.fit(sample, 8));
+	}
+
+	@Test
+	void estimatesTokensFromWordsAndPunctuation() {
+		assertEquals(0, PromptCompactor.estimateTokens("   "));
+		assertEquals(2, PromptCompactor.estimateTokens("cat!"));
+		assertEquals(4, PromptCompactor.estimateTokens("photosynthesis"));
+	}
+}
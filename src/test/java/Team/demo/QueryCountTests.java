@@ -0,0 +1,177 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.QuestionResult;
+import Team.demo.model.Quiz;
+import Team.demo.model.QuizResult;
+import Team.demo.model.User;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.ui.ExtendedModelMap;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The history (one page plus one expanded entry), profile and generate paths must issue
+ * the same number of SQL statements no matter how much history the user has.
+ */
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.streaming.enabled=true",
+		"spring.jpa.properties.hibernate.generate_statistics=true",
+		"spring.jpa.open-in-view=false"
+})
+class QueryCountTests {
+
+	@Autowired
+	private QuizController quizController;
+	@Autowired
+	private UserStatsService userStatsService;
+	@Autowired
+	private QuizStore quizStore;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private EntityManagerFactory entityManagerFactory;
+
+	private User user;
+	private Statistics statistics;
+
+	@BeforeEach
+	void setUp() {
+		user = userRepository.save(new User("counter-" + System.nanoTime(), "secret"));
+		SecurityContextHolder.getContext().setAuthentication(
+				new UsernamePasswordAuthenticationToken(user.getUsername(), null, List.of()));
+		statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+	}
+
+	@AfterEach
+	void tearDown() {
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void statementCountDoesNotGrowWithHistory() {
+		addResults(1);
+		long history = countHistory();
+		long profile = countProfile();
+		long generate = countGenerate();
+		assertTrue(history > 0 && profile > 0 && generate > 0);
+
+		addResults(40); // More than one history page
+		assertEquals(history, countHistory());
+		assertEquals(history, countOlderHistory());
+		assertEquals(profile, countProfile());
+		assertEquals(generate, countGenerate());
+	}
+
+	@Test
+	void submittingAQuizTakesAHandfulOfStatements() {
+		submit(5); // Creates the user's statistics rows
+		long statements = count(() -> submit(50));
+		assertTrue(statements <= 12, "50-question submission took " + statements + " statements");
+	}
+
+	private long countHistory() {
+		return count(() -> {
+			ExtendedModelMap model = new ExtendedModelMap();
+			quizController.history(null, null, model);
+			QuizResult newest = (QuizResult) ((List<?>) model.get("history")).get(0);
+			quizController.historyQuestions(newest.getId()).forEach(QuestionResult::getQuestionText);
+		});
+	}
+
+	private long countOlderHistory() {
+		ExtendedModelMap firstPage = new ExtendedModelMap();
+		quizController.history(null, null, firstPage);
+		return count(() -> {
+			ExtendedModelMap model = new ExtendedModelMap();
+			quizController.history((LocalDateTime) firstPage.get("nextTime"), (Long) firstPage.get("nextId"), model);
+			List<?> page = (List<?>) model.get("history");
+			assertTrue(((QuizResult) page.get(0)).getId() < (Long) firstPage.get("nextId"));
+			quizController.historyQuestions(((QuizResult) page.get(0)).getId()).forEach(QuestionResult::getQuestionText);
+		});
+	}
+
+	private long countProfile() {
+		return count(() -> {
+			ExtendedModelMap model = new ExtendedModelMap();
+			quizController.profile(model);
+			touchQuestions((List<?>) model.get("recentQuizzes"));
+		});
+	}
+
+	private long countGenerate() {
+		// With streaming on and an empty bank this stops before calling the AI service
+		return count(() -> quizController.generateQuiz("History", 5, "Easy", "Multiple Choice", 10, null,
+				new ExtendedModelMap(), new RedirectAttributesModelMap()));
+	}
+
+	// Walks the question results the way the templates do; fails if they weren't fetched
+	private static void touchQuestions(List<?> results) {
+		for (Object result : results) {
+			for (QuestionResult questionResult : ((QuizResult) result).getQuestionResults()) {
+				questionResult.getQuestionText();
+			}
+		}
+	}
+
+	private long count(Runnable action) {
+		statistics.clear();
+		action.run();
+		return statistics.getPrepareStatementCount();
+	}
+
+	private void submit(int questionCount) {
+		List<Question> questions = new ArrayList<>();
+		MockHttpServletRequest request = new MockHttpServletRequest();
+		for (int i = 0; i < questionCount; i++) {
+			Question question = new Question();
+			question.setType("Multiple Choice");
+			question.setQuestion("Submitted question " + System.nanoTime() + " " + i);
+			question.setOptions(List.of("A", "B"));
+			question.setCorrectOptionIndex(0);
+			questions.add(question);
+			request.setParameter("q" + i, i % 2 == 0 ? "A" : "B");
+		}
+		String quizId = QuizStore.newQuizId();
+		quizStore.put(quizId, user.getUsername(), new Quiz("Submissions", "Easy", "Multiple Choice", questions));
+		request.setParameter("quizId", quizId);
+		quizController.submitQuiz(request, new ExtendedModelMap());
+	}
+
+	private void addResults(int count) {
+		for (int i = 0; i < count; i++) {
+			QuizResult result = new QuizResult();
+			result.setUser(user);
+			result.setTopic("History");
+			result.setScore(1);
+			result.setTotal(2);
+			List<QuestionResult> questionResults = new ArrayList<>();
+			for (int j = 0; j < 2; j++) {
+				QuestionResult questionResult = new QuestionResult();
+				questionResult.setQuestionText("Question " + i + "-" + j);
+				questionResult.setCorrectAnswer("A");
+				questionResult.setUserAnswer("A");
+				questionResults.add(questionResult);
+			}
+			result.setQuestionResults(questionResults);
+			userStatsService.saveResult(result);
+		}
+	}
+}
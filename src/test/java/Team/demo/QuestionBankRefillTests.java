@@ -0,0 +1,71 @@
+package Team.demo;
+
+import Team.demo.model.Quiz;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import static Team.demo.QuestionBankTests.questions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Serving quizzes from the bank refills it in the background, against a stub AI provider,
+ * once it drops below the low watermark.
+ */
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.bank.low-watermark=6",
+		"quiz.bank.refill-size=4"
+})
+class QuestionBankRefillTests {
+
+	private static final StubAiProvider provider = new StubAiProvider();
+
+	@Autowired
+	private AiQuizService aiQuizService;
+	@Autowired
+	private QuestionBank questionBank;
+
+	@TestConfiguration
+	static class StubRouterConfig {
+		@Bean
+		@Primary
+		AiRouter stubAiRouter() {
+			return provider.router();
+		}
+	}
+
+	@BeforeEach
+	void reset() {
+		provider.prompts.clear();
+		provider.answer = prompt -> StubAiProvider.questions("Refill");
+	}
+
+	@Test
+	void refillsOnlyOnceBelowTheLowWatermark() throws Exception {
+		QuizRequest request = aiQuizService.prepareRequest("Botany " + System.nanoTime(), 2, "Easy", "Multiple Choice", null,
+				"banker-" + System.nanoTime());
+		QuestionBank.Key key = QuestionBank.key(request.topicKey(), request.difficulty(), request.type());
+		questionBank.add(key, questions("Leaf", 8));
+
+		assertNotNull(aiQuizService.takeFromBank(request));
+		Thread.sleep(200);
+		assertEquals(6, questionBank.size(key));
+		assertTrue(provider.prompts.isEmpty());
+
+		Quiz quiz = aiQuizService.takeFromBank(request);
+		assertNotNull(quiz);
+		assertEquals(2, quiz.getQuestions().size());
+		for (int i = 0; i < 250 && questionBank.size(key) < 8; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(8, questionBank.size(key));
+		assertEquals(1, provider.prompts.size());
+	}
+}
@@ -0,0 +1,99 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestionBankTests {
+
+	private static final QuestionBank.Key BIOLOGY = QuestionBank.key("Biology", "Easy", "Multiple Choice");
+	private static final QuestionBank.Key CHEMISTRY = QuestionBank.key("Chemistry", "Easy", "Multiple Choice");
+	private static final QuestionBank.Key PHYSICS = QuestionBank.key("Physics", "Easy", "Multiple Choice");
+
+	@Test
+	void expiredQuestionsAreEvicted() throws InterruptedException {
+		// A zero TTL expires every question as soon as the clock moves on
+		QuestionBank bank = new QuestionBank(0, 10, 10);
+		bank.add(BIOLOGY, questions("Cell", 3));
+		Thread.sleep(5);
+
+		assertEquals(0, bank.size(BIOLOGY));
+		assertTrue(bank.take(BIOLOGY, 1, q -> true).isEmpty());
+	}
+
+	@Test
+	void aFullTopicDropsItsOldestQuestions() {
+		QuestionBank bank = new QuestionBank(60, 10, 3);
+		bank.add(BIOLOGY, questions("Cell", 5));
+
+		assertEquals(3, bank.size(BIOLOGY));
+		assertEquals(List.of("Cell 3?", "Cell 4?", "Cell 5?"), texts(bank.take(BIOLOGY, 3, q -> true)));
+	}
+
+	@Test
+	void tooManyTopicsDropTheLeastRecentlyUsed() {
+		QuestionBank bank = new QuestionBank(60, 2, 10);
+		bank.add(BIOLOGY, questions("Cell", 2));
+		bank.add(CHEMISTRY, questions("Atom", 2));
+		bank.size(BIOLOGY); // Chemistry is now the least recently used
+		bank.add(PHYSICS, questions("Force", 2));
+
+		assertEquals(2, bank.size(BIOLOGY));
+		assertEquals(0, bank.size(CHEMISTRY));
+		assertEquals(2, bank.size(PHYSICS));
+	}
+
+	@Test
+	void takesAWholeQuizOrNothing() {
+		QuestionBank bank = new QuestionBank(60, 10, 10);
+		bank.add(BIOLOGY, questions("Cell", 4));
+
+		assertTrue(bank.take(BIOLOGY, 4, q -> !q.getQuestion().equals("Cell 2?")).isEmpty());
+		assertEquals(4, bank.size(BIOLOGY));
+
+		assertEquals(List.of("Cell 1?", "Cell 3?"), texts(bank.take(BIOLOGY, 2, q -> !q.getQuestion().equals("Cell 2?"))));
+		assertEquals(2, bank.size(BIOLOGY));
+		assertEquals(1, bank.getHits());
+		assertEquals(1, bank.getMisses());
+	}
+
+	@Test
+	void skipsInvalidAndDuplicateQuestions() {
+		QuestionBank bank = new QuestionBank(60, 10, 10);
+		List<Question> questions = questions("Cell", 2);
+		questions.add(question("  CELL 1? "));
+		Question unanswerable = question("Cell 3?");
+		unanswerable.setCorrectOptionIndex(4);
+		questions.add(unanswerable);
+
+		bank.add(BIOLOGY, questions);
+
+		assertEquals(2, bank.size(BIOLOGY));
+	}
+
+	static List<Question> questions(String prefix, int count) {
+		List<Question> questions = new ArrayList<>();
+		for (int i = 1; i <= count; i++) {
+			questions.add(question(prefix + " " + i + "?"));
+		}
+		return questions;
+	}
+
+	private static Question question(String text) {
+		Question question = new Question();
+		question.setType("Multiple Choice");
+		question.setQuestion(text);
+		question.setOptions(List.of("A", "B", "C", "D"));
+		question.setCorrectOptionIndex(0);
+		return question;
+	}
+
+	private static List<String> texts(List<Question> questions) {
+		return questions.stream().map(Question::getQuestion).toList();
+	}
+}
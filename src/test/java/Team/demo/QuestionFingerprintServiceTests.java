@@ -0,0 +1,30 @@
+package Team.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuestionFingerprintServiceTests {
+
+	@Test
+	void hashIgnoresCaseAndPunctuation() {
+		assertEquals(QuestionFingerprintService.hash("What is the capital of France?"),
+				QuestionFingerprintService.hash("  what is the CAPITAL of france "));
+	}
+
+	@Test
+	void catchesRewordingsButNotDifferentQuestions() {
+		String seen = "Which organelle is responsible for producing energy in the cell?";
+		QuestionFingerprintService.SeenQuestions questions = new QuestionFingerprintService.SeenQuestions(
+				Set.of(QuestionFingerprintService.hash(seen)), List.of(QuestionFingerprintService.minHash(seen)), 0.7);
+
+		assertTrue(questions.contains(seen));
+		assertTrue(questions.contains("Which organelle is responsible for producing the energy in a cell?"));
+		assertFalse(questions.contains("What year did the Second World War end?"));
+	}
+}
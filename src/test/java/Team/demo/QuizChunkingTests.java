@@ -0,0 +1,150 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntFunction;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static Team.demo.StubAiProvider.questions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Large quizzes, generated or streamed, are split into chunks against a stub AI provider that
+ * answers each part ("part N of M" in the prompt) with whatever the test scripts for that part.
+ */
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.bank.enabled=false",
+		"quiz.coalescing.enabled=false",
+		"quiz.fanout.chunk-size=5",
+		"quiz.fanout.max-attempts=2"
+})
+class QuizChunkingTests {
+
+	private static final Pattern PART = Pattern.compile("part (\\d+) of (\\d+)");
+	private static final StubAiProvider provider = new StubAiProvider();
+
+	@Autowired
+	private AiQuizService aiQuizService;
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@TestConfiguration
+	static class StubRouterConfig {
+		@Bean
+		@Primary
+		AiRouter stubAiRouter() {
+			return provider.router();
+		}
+	}
+
+	@BeforeEach
+	void reset() {
+		provider.prompts.clear();
+		answer(part -> questions("Part " + part + " question"));
+	}
+
+	@Test
+	void splitsALargeQuizIntoEvenChunks() {
+		Quiz quiz = generate("Volcanoes", 12);
+
+		assertEquals(12, quiz.getQuestions().size());
+		assertEquals(Map.of(1, 1, 2, 1, 3, 1), callsPerPart());
+		assertEquals("Part 1 question 1?", quiz.getQuestions().get(0).getQuestion());
+		assertEquals("Part 3 question 4?", quiz.getQuestions().get(11).getQuestion());
+	}
+
+	@Test
+	void retriesAFailedChunkOnItsOwn() {
+		AtomicInteger part2Attempts = new AtomicInteger();
+		answer(part -> part == 2 && part2Attempts.incrementAndGet() == 1
+				? "Sorry, I can't help with that."
+				: questions("Part " + part + " question"));
+
+		Quiz quiz = generate("Glaciers", 12);
+
+		assertEquals(12, quiz.getQuestions().size());
+		assertEquals(Map.of(1, 1, 2, 2, 3, 1), callsPerPart());
+	}
+
+	@Test
+	void dropsQuestionsRepeatedAcrossChunks() {
+		answer(part -> questions("Shared question"));
+
+		Quiz quiz = generate("Earthquakes", 12);
+
+		assertEquals(4, quiz.getQuestions().size());
+	}
+
+	@Test
+	void servesAShortQuizUnlessEveryChunkFails() {
+		double failedBefore = meterRegistry.counter("quiz.chunks.failed").count();
+		answer(part -> part == 1 ? "Sorry, I can't help with that." : questions("Part " + part + " question"));
+
+		Quiz quiz = generate("Tsunamis", 12);
+
+		assertEquals(8, quiz.getQuestions().size());
+		assertEquals(2, callsPerPart().get(1));
+		assertEquals(failedBefore + 1, meterRegistry.counter("quiz.chunks.failed").count());
+
+		answer(part -> "Sorry, I can't help with that.");
+		assertThrows(RuntimeException.class, () -> generate("Hurricanes", 12));
+	}
+
+	@Test
+	void streamsALargeQuizChunkByChunk() throws IOException {
+		answer(part -> part == 3 ? questions("Part 1 question") : questions("Part " + part + " question"));
+		List<Question> streamed = new ArrayList<>();
+
+		Quiz quiz = aiQuizService.streamQuiz(aiQuizService.prepareRequest("Avalanches", 12, "Easy", "Multiple Choice", null,
+				"streamer-" + System.nanoTime()), streamed::add);
+
+		// Part 3 repeats part 1, so only 8 distinct questions reach the page, in the order the quiz keeps
+		assertEquals(Map.of(1, 1, 2, 1, 3, 1), callsPerPart());
+		assertEquals(8, streamed.size());
+		assertEquals(streamed, quiz.getQuestions());
+	}
+
+	private Quiz generate(String topic, int numberOfQuestions) {
+		try {
+			return aiQuizService.generateQuiz(aiQuizService.prepareRequest(topic, numberOfQuestions, "Easy", "Multiple Choice", null,
+					"chunker-" + System.nanoTime()));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Scripts the answer by the chunk's part number, read from its prompt
+	private static void answer(IntFunction<String> byPart) {
+		provider.answer = prompt -> byPart.apply(part(prompt));
+	}
+
+	private static Map<Integer, Integer> callsPerPart() {
+		Map<Integer, Integer> calls = new HashMap<>();
+		provider.prompts.forEach(prompt -> calls.merge(part(prompt), 1, Integer::sum));
+		return calls;
+	}
+
+	private static int part(String prompt) {
+		Matcher part = PART.matcher(prompt);
+		return part.find() ? Integer.parseInt(part.group(1)) : 0;
+	}
+}
@@ -0,0 +1,51 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class QuizCodecTests {
+
+	@Test
+	void roundTripsEveryField() {
+		Question multipleChoice = new Question();
+		multipleChoice.setType("Multiple Choice");
+		multipleChoice.setQuestion("Which planet is known as the Red Planet?");
+		multipleChoice.setOptions(List.of("Venus", "Mars", "Jupiter", "Saturn"));
+		multipleChoice.setCorrectOptionIndex(1);
+		multipleChoice.setExplanation("Iron oxide gives Mars its colour — ça va.");
+
+		Question fillIn = new Question();
+		fillIn.setType("Fill in the Blank");
+		fillIn.setQuestion("Water boils at ____ degrees Celsius.");
+		fillIn.setAnswer("100");
+
+		Quiz decoded = QuizCodec.decode(QuizCodec.encode(
+				new Quiz("Science", "Easy", "Mixed", List.of(multipleChoice, fillIn))));
+
+		assertEquals("Science", decoded.getTopic());
+		assertEquals("Mixed", decoded.getType());
+		assertEquals(2, decoded.getQuestions().size());
+		Question first = decoded.getQuestions().get(0);
+		assertEquals(multipleChoice.getOptions(), first.getOptions());
+		assertEquals(1, first.getCorrectOptionIndex());
+		assertEquals(multipleChoice.getExplanation(), first.getExplanation());
+		Question second = decoded.getQuestions().get(1);
+		assertNull(second.getOptions());
+		assertEquals(-1, second.getCorrectOptionIndex());
+		assertEquals("100", second.getCorrectAnswerText());
+	}
+
+	@Test
+	void roundTripsAPendingRequestWithoutItsSeenQuestions() {
+		QuizRequest request = new QuizRequest("Notes.pdf", "notes", 25, "Hard", "Fill in the Blank", "Document text — résumé",
+				true, "abc123", List.of("What is a cell?"), QuestionFingerprintService.SeenQuestions.EMPTY);
+
+		assertEquals(request, QuizCodec.decodeRequest(QuizCodec.encodeRequest(request)));
+	}
+}
@@ -0,0 +1,62 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+import Team.demo.model.QuizResult;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class QuizGradingTests {
+
+	@Test
+	void gradesMultipleChoiceExactlyAndBlanksIgnoringCase() {
+		Question multipleChoice = new Question();
+		multipleChoice.setType("Multiple Choice");
+		multipleChoice.setQuestion("Pick B");
+		multipleChoice.setOptions(List.of("A", "B"));
+		multipleChoice.setCorrectOptionIndex(1);
+		Question blank = new Question();
+		blank.setType("Fill in the Blank");
+		blank.setQuestion("Paris is in ____.");
+		blank.setAnswer("France");
+		Question unanswered = new Question();
+		unanswered.setType("Fill in the Blank");
+		unanswered.setQuestion("Rome is in ____.");
+		unanswered.setAnswer("Italy");
+
+		QuizResult result = QuizController.grade(new Quiz("Mixed", "Easy", "Mixed", List.of(multipleChoice, blank, unanswered)),
+				Map.of("q0", "b", "q1", "FRANCE")::get);
+
+		assertEquals(1, result.getScore());
+		assertEquals(3, result.getTotal());
+		assertFalse(result.getQuestionResults().get(0).isCorrect());
+		assertTrue(result.getQuestionResults().get(1).isCorrect());
+		assertEquals("Not Answered", result.getQuestionResults().get(2).getUserAnswer());
+	}
+
+	@Test
+	void shuffledCopiesKeepTheSameCorrectAnswer() {
+		Question original = new Question();
+		original.setType("Multiple Choice");
+		original.setQuestion("Pick C");
+		original.setOptions(List.of("A", "B", "C", "D"));
+		original.setCorrectOptionIndex(2);
+
+		Random random = new Random(7);
+		for (int i = 0; i < 20; i++) {
+			Question copy = AiQuizService.shuffledCopy(original, random);
+			assertEquals("C", copy.getCorrectAnswerText());
+			assertEquals(4, copy.getOptions().size());
+			QuizResult result = QuizController.grade(new Quiz("Letters", "Easy", "Multiple Choice", List.of(copy)), Map.of("q0", "C")::get);
+			assertEquals(1, result.getScore());
+		}
+		assertEquals(List.of("A", "B", "C", "D"), original.getOptions());
+	}
+}
@@ -0,0 +1,215 @@
+package Team.demo;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static Team.demo.QuizJobService.Status;
+import static Team.demo.StubAiProvider.questions;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Jobs run on a one-thread, one-slot job executor against a stub AI provider, which can be
+ * told to block until the test releases it so jobs can be caught while queued or running.
+ */
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.bank.enabled=false",
+		"quiz.jobs.threads=1",
+		"quiz.jobs.queue-capacity=1",
+		"quiz.jobs.ttl-minutes=0",
+		"quiz.jobs.cleanup-interval-ms=3600000"
+})
+class QuizJobServiceTests {
+
+	private static final StubAiProvider provider = new StubAiProvider();
+
+	@Autowired
+	private QuizJobService quizJobService;
+	@Autowired
+	private QuizJobController quizJobController;
+	@Autowired
+	private AiQuizService aiQuizService;
+
+	private final List<QuizJobService.QuizJob> submitted = new ArrayList<>();
+	private volatile CountDownLatch release = new CountDownLatch(0);
+
+	@TestConfiguration
+	static class StubRouterConfig {
+		@Bean
+		@Primary
+		AiRouter stubAiRouter() {
+			return provider.router();
+		}
+	}
+
+	@BeforeEach
+	void setUp() {
+		provider.prompts.clear();
+		provider.available = true;
+		provider.answer = prompt -> {
+			try {
+				if (!release.await(10, TimeUnit.SECONDS)) throw new IllegalStateException("Never released.");
+			} catch (InterruptedException e) {
+				throw new AiServiceException("Interrupted.", false, "interrupted", e);
+			}
+			return questions("Question");
+		};
+	}
+
+	@AfterEach
+	void tearDown() throws InterruptedException {
+		release.countDown();
+		// Leave the single job thread free for the next test
+		for (QuizJobService.QuizJob job : submitted) {
+			for (int i = 0; i < 100 && (job.getStatus() == Status.QUEUED || job.getStatus() == Status.RUNNING); i++) {
+				Thread.sleep(20);
+			}
+		}
+		Thread.sleep(50);
+		SecurityContextHolder.clearContext();
+	}
+
+	@Test
+	void answers503OnceTheQueueIsFull() throws Exception {
+		block();
+		login("queue-" + System.nanoTime());
+
+		ResponseEntity<Map<String, Object>> running = quizJobController.submit("Rivers", 3, "Easy", "Multiple Choice", null);
+		assertEquals(HttpStatus.ACCEPTED, running.getStatusCode());
+		awaitStatus(track(running), Status.RUNNING);
+		ResponseEntity<Map<String, Object>> queued = quizJobController.submit("Lakes", 3, "Easy", "Multiple Choice", null);
+		assertEquals(HttpStatus.ACCEPTED, queued.getStatusCode());
+		track(queued);
+
+		ResponseEntity<Map<String, Object>> rejected = quizJobController.submit("Oceans", 3, "Easy", "Multiple Choice", null);
+		assertEquals(HttpStatus.SERVICE_UNAVAILABLE, rejected.getStatusCode());
+	}
+
+	@Test
+	void onlyTheOwnerSeesCancelsOrClaimsAJob() throws Exception {
+		QuizJobService.QuizJob job = submit("Deserts", "alice-" + System.nanoTime());
+		awaitStatus(job, Status.DONE);
+		String stranger = "mallory-" + System.nanoTime();
+
+		assertTrue(quizJobService.find(job.getId(), stranger).isEmpty());
+		assertFalse(quizJobService.cancel(job.getId(), stranger));
+		assertTrue(quizJobService.claim(job.getId(), stranger).isEmpty());
+		assertEquals(Status.DONE, quizJobService.find(job.getId(), job.getUsername()).orElseThrow().getStatus());
+	}
+
+	@Test
+	void cancelledQueuedJobNeverRuns() throws Exception {
+		block();
+		String username = "queued-" + System.nanoTime();
+		QuizJobService.QuizJob running = submit("Mountains", username);
+		awaitStatus(running, Status.RUNNING);
+		QuizJobService.QuizJob queued = submit("Valleys", username);
+
+		assertTrue(quizJobService.cancel(queued.getId(), username));
+		assertEquals(Status.CANCELLED, queued.getStatus());
+		release.countDown();
+		awaitStatus(running, Status.DONE);
+		Thread.sleep(200);
+
+		assertEquals(Status.CANCELLED, queued.getStatus());
+		assertTrue(provider.prompts.stream().noneMatch(prompt -> prompt.contains("Valleys")));
+	}
+
+	@Test
+	void cancelledRunningJobStaysCancelledAndFreesItsThread() throws Exception {
+		block();
+		String username = "running-" + System.nanoTime();
+		QuizJobService.QuizJob job = submit("Forests", username);
+		awaitStatus(job, Status.RUNNING);
+
+		assertTrue(quizJobService.cancel(job.getId(), username));
+		// The interrupted call fails, but the job doesn't turn from cancelled to failed
+		Thread.sleep(200);
+		assertEquals(Status.CANCELLED, job.getStatus());
+		assertTrue(quizJobService.claim(job.getId(), username).isEmpty());
+
+		release.countDown();
+		awaitStatus(submit("Meadows", username), Status.DONE);
+	}
+
+	@Test
+	void aFinishedQuizIsClaimedOnlyOnce() throws Exception {
+		QuizJobService.QuizJob job = submit("Islands", "claim-" + System.nanoTime());
+		awaitStatus(job, Status.DONE);
+
+		assertTrue(quizJobService.claim(job.getId(), job.getUsername()).isPresent());
+		assertTrue(quizJobService.claim(job.getId(), job.getUsername()).isEmpty());
+		assertTrue(quizJobService.find(job.getId(), job.getUsername()).isEmpty());
+	}
+
+	@Test
+	void expiredJobsAreForgotten() throws Exception {
+		QuizJobService.QuizJob job = submit("Canyons", "expiry-" + System.nanoTime());
+		awaitStatus(job, Status.DONE);
+
+		quizJobService.expireJobs();
+
+		assertTrue(quizJobService.find(job.getId(), job.getUsername()).isEmpty());
+	}
+
+	@Test
+	void aFallbackQuizCarriesTheUnavailableNote() throws Exception {
+		provider.available = false;
+		login("fallback-" + System.nanoTime());
+
+		QuizJobService.QuizJob job = track(quizJobController.submit("Comets", 3, "Easy", "Multiple Choice", null));
+		awaitStatus(job, Status.DONE);
+
+		assertEquals(AiQuizService.FALLBACK_NOTE, quizJobController.status(job.getId()).getBody().get("note"));
+		assertEquals(AiQuizService.FALLBACK_NOTE, quizJobService.claim(job.getId(), job.getUsername()).orElseThrow().getNote());
+	}
+
+	private void block() {
+		release = new CountDownLatch(1);
+	}
+
+	private QuizJobService.QuizJob submit(String topic, String username) throws Exception {
+		QuizJobService.QuizJob job = quizJobService.submit(aiQuizService.prepareRequest(topic, 3, "Easy", "Multiple Choice", null, username), username);
+		submitted.add(job);
+		return job;
+	}
+
+	private QuizJobService.QuizJob track(ResponseEntity<Map<String, Object>> response) {
+		QuizJobService.QuizJob job = quizJobService.find((String) response.getBody().get("jobId"), currentUser()).orElseThrow();
+		submitted.add(job);
+		return job;
+	}
+
+	private static void awaitStatus(QuizJobService.QuizJob job, Status status) throws InterruptedException {
+		for (int i = 0; i < 250 && job.getStatus() != status; i++) {
+			Thread.sleep(20);
+		}
+		assertEquals(status, job.getStatus());
+	}
+
+	private static void login(String username) {
+		SecurityContextHolder.getContext().setAuthentication(new UsernamePasswordAuthenticationToken(username, null, List.of()));
+	}
+
+	private static String currentUser() {
+		return SecurityContextHolder.getContext().getAuthentication().getName();
+	}
+}
@@ -0,0 +1,135 @@
+package Team.demo;
+
+import Team.demo.model.Question;
+import Team.demo.model.Quiz;
+import Team.demo.model.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+/**
+ * The next quiz is generated after a submit, against a stub AI provider, and handed out
+ * only to a matching request. Prefetches leave the question bank alone.
+ */
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.prefetch.enabled=true"
+})
+class QuizPrefetcherTests {
+
+	private static final StubAiProvider provider = new StubAiProvider();
+
+	@Autowired
+	private QuizPrefetcher quizPrefetcher;
+	@Autowired
+	private QuizJobService quizJobService;
+	@Autowired
+	private AiQuizService aiQuizService;
+	@Autowired
+	private QuestionBank questionBank;
+	@Autowired
+	private TopicIndex topicIndex;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private MeterRegistry meterRegistry;
+
+	@TestConfiguration
+	static class StubRouterConfig {
+		@Bean
+		@Primary
+		AiRouter stubAiRouter() {
+			return provider.router();
+		}
+	}
+
+	@BeforeEach
+	void reset() {
+		provider.prompts.clear();
+		provider.answer = prompt -> StubAiProvider.questions("Prefetched");
+	}
+
+	@Test
+	void servesThePrefetchedQuizToTheNextMatchingRequest() throws Exception {
+		String username = userRepository.save(new User("prefetch-" + System.nanoTime(), "secret")).getUsername();
+		QuestionBank.Key key = QuestionBank.key(topicIndex.canonicalId("Photosynthesis"), "Easy", "Multiple Choice");
+		questionBank.add(key, banked(30));
+		int bankedBefore = questionBank.size(key);
+
+		QuizRequest request = aiQuizService.prepareRequest("Photosynthesis", 4, "Easy", "Multiple Choice", null, username);
+		assertNull(quizPrefetcher.take(username, request));
+		double generated = outcome("generated");
+		quizPrefetcher.prefetchNext(username);
+		awaitOutcome("generated", generated);
+
+		// Generated by the AI, without taking from or adding to the bank
+		assertEquals(1, provider.prompts.size());
+		assertEquals(bankedBefore, questionBank.size(key));
+
+		double hits = outcome("hit");
+		Quiz prefetched = quizPrefetcher.take(username, aiQuizService.prepareRequest(" photosynthesis", 4, "Easy", "Multiple Choice", null, username));
+		assertNotNull(prefetched);
+		assertEquals("Prefetched 1?", prefetched.getQuestions().get(0).getQuestion());
+		assertEquals(hits + 1, outcome("hit"));
+		// The slot is used up
+		assertNull(quizPrefetcher.take(username, request));
+	}
+
+	@Test
+	void quizJobsAreServedFromAndTriggerPrefetches() throws Exception {
+		String username = userRepository.save(new User("prefetch-job-" + System.nanoTime(), "secret")).getUsername();
+		QuizRequest request = aiQuizService.prepareRequest("Fungi " + System.nanoTime(), 4, "Easy", "Multiple Choice", null, username);
+
+		awaitDone(quizJobService.submit(request, username));
+		double generated = outcome("generated");
+		quizPrefetcher.prefetchNext(username);
+		awaitOutcome("generated", generated);
+
+		double hits = outcome("hit");
+		awaitDone(quizJobService.submit(request, username));
+		assertEquals(hits + 1, outcome("hit"));
+	}
+
+	private static List<Question> banked(int count) {
+		List<Question> banked = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Question question = new Question();
+			question.setType("Multiple Choice");
+			question.setQuestion("Which gas do plants absorb, variant " + i + "?");
+			question.setOptions(List.of("Oxygen", "Carbon dioxide", "Nitrogen"));
+			question.setCorrectOptionIndex(1);
+			banked.add(question);
+		}
+		return banked;
+	}
+
+	private void awaitOutcome(String outcome, double before) throws InterruptedException {
+		for (int i = 0; i < 100 && outcome(outcome) == before; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(before + 1, outcome(outcome));
+	}
+
+	private static void awaitDone(QuizJobService.QuizJob job) throws InterruptedException {
+		for (int i = 0; i < 100 && job.getStatus() != QuizJobService.Status.DONE; i++) {
+			Thread.sleep(50);
+		}
+		assertEquals(QuizJobService.Status.DONE, job.getStatus());
+	}
+
+	private double outcome(String outcome) {
+		return meterRegistry.counter("quiz.prefetch", "outcome", outcome).count();
+	}
+}
@@ -0,0 +1,93 @@
+package Team.demo;
+
+import Team.demo.model.QuestionResult;
+import Team.demo.model.QuizResult;
+import Team.demo.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(properties = {
+		"gemini.api.key=test-key",
+		"quiz.results.write-behind.enabled=true",
+		"quiz.results.write-behind.retry-interval-ms=100",
+		"quiz.results.write-behind.spill-file=target/test-quiz-results-spill.jsonl"
+})
+class QuizResultWriterTests {
+
+	@Autowired
+	private QuizResultWriter quizResultWriter;
+	@Autowired
+	private QuizResultRepository quizResultRepository;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private UserStatsService userStatsService;
+
+	@Test
+	void userReadsTheirOwnQueuedResults() {
+		User user = userRepository.save(new User("writer-" + System.nanoTime(), "secret"));
+		for (int i = 0; i < 25; i++) {
+			quizResultWriter.write(result(user, "Physics " + i));
+		}
+
+		quizResultWriter.awaitPersisted(user.getUsername());
+
+		assertEquals(25, quizResultRepository.findHistoryPage(user.getUsername(), PageRequest.of(0, 50)).size());
+		assertEquals(25, userStatsService.overall(user.getUsername()).getQuizzes());
+	}
+
+	@Test
+	void failedResultsStayPendingUntilARetrySavesThem() throws InterruptedException {
+		// Not saved yet, so the first attempts to save its result fail
+		User user = new User("late-" + System.nanoTime(), "secret");
+		quizResultWriter.write(result(user, "Chemistry"));
+
+		Thread.sleep(300);
+		assertTrue(quizResultWriter.hasPending(user.getUsername()));
+
+		userRepository.save(user);
+		quizResultWriter.awaitPersisted(user.getUsername());
+
+		assertFalse(quizResultWriter.hasPending(user.getUsername()));
+		assertEquals(1, quizResultRepository.findHistoryPage(user.getUsername(), PageRequest.of(0, 50)).size());
+	}
+
+	@Test
+	void spilledResultsAreReplayed() {
+		User user = userRepository.save(new User("spill-" + System.nanoTime(), "secret"));
+		quizResultWriter.spill(List.of(result(user, "Astronomy"), result(user, "Astronomy")));
+
+		quizResultWriter.replaySpillFile();
+
+		assertFalse(Files.exists(Path.of("target/test-quiz-results-spill.jsonl")));
+		List<QuizResult> history = quizResultRepository.findHistoryPage(user.getUsername(), PageRequest.of(0, 50));
+		assertEquals(2, history.size());
+		assertEquals(1, quizResultRepository.findQuestionResults(history.get(0).getId(), user.getUsername()).size());
+	}
+
+	private static QuizResult result(User user, String topic) {
+		QuizResult result = new QuizResult();
+		result.setUser(user);
+		result.setTopic(topic);
+		result.setScore(1);
+		result.setTotal(1);
+		QuestionResult questionResult = new QuestionResult();
+		questionResult.setQuestionText("What is " + topic + "?");
+		questionResult.setUserAnswer("A");
+		questionResult.setCorrectAnswer("A");
+		questionResult.setCorrect(true);
+		result.setQuestionResults(new ArrayList<>(List.of(questionResult)));
+		return result;
+	}
+}
@@ -0,0 +1,78 @@
+package Team.demo;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTests {
+
+	private final SingleFlight<String, String> flights = new SingleFlight<>();
+
+	@Test
+	void concurrentCallersShareOneRun() throws Exception {
+		AtomicInteger runs = new AtomicInteger();
+		CountDownLatch started = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			List<Future<SingleFlight.Result<String>>> results = new ArrayList<>();
+			results.add(pool.submit(() -> flights.execute("photosynthesis", () -> {
+				runs.incrementAndGet();
+				started.countDown();
+				await(release);
+				return "quiz";
+			})));
+			assertTrue(started.await(5, TimeUnit.SECONDS));
+			for (int i = 0; i < 7; i++) {
+				results.add(pool.submit(() -> flights.execute("photosynthesis", () -> {
+					runs.incrementAndGet();
+					return "other";
+				})));
+			}
+			// Wait until every follower has joined the leader's flight
+			Thread.sleep(200);
+			release.countDown();
+
+			int shared = 0;
+			for (Future<SingleFlight.Result<String>> result : results) {
+				assertEquals("quiz", result.get(5, TimeUnit.SECONDS).value());
+				if (result.get().shared()) shared++;
+			}
+			assertEquals(1, runs.get());
+			assertEquals(7, shared);
+			assertEquals(0, flights.inFlightCount());
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	@Test
+	void failuresAreNotRemembered() {
+		assertThrows(IllegalStateException.class, () -> flights.execute("k", () -> {
+			throw new IllegalStateException("upstream down");
+		}));
+		SingleFlight.Result<String> retry = flights.execute("k", () -> "ok");
+		assertEquals("ok", retry.value());
+		assertFalse(retry.shared());
+	}
+
+	private static void await(CountDownLatch latch) {
+		try {
+			latch.await(5, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+}
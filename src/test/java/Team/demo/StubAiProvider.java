@@ -0,0 +1,76 @@
+package Team.demo;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * An AI provider for tests that answers every prompt with the quiz text the test scripts
+ * for it, wrapped like a Gemini response, and remembers the prompts it was sent.
+ */
+class StubAiProvider implements AiProvider {
+
+	private static final ObjectMapper objectMapper = new ObjectMapper();
+
+	final List<String> prompts = new CopyOnWriteArrayList<>();
+	volatile Function<String, String> answer = prompt -> questions("Question");
+	volatile boolean available = true; // When false, the router fails fast as if the circuit were open
+
+	/** A router with only this provider and no hedging, to stand in for the configured one. */
+	AiRouter router() {
+		return new AiRouter(List.of(this), Runnable::run, new AiRouter.Settings(false, false, Duration.ofSeconds(1),
+				Duration.ofSeconds(1), 0, 1), new SimpleMeterRegistry());
+	}
+
+	@Override
+	public String getName() {
+		return "stub";
+	}
+
+	@Override
+	public boolean isAvailable() {
+		return available;
+	}
+
+	@Override
+	public String generateContent(String requestBody) {
+		try {
+			String prompt = objectMapper.readTree(requestBody).path("contents").path(0).path("parts").path(0).path("text").asText();
+			prompts.add(prompt);
+			return json(Map.of("candidates", List.of(Map.of("content", Map.of("parts", List.of(Map.of("text", answer.apply(prompt))))))));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void streamGenerateContent(String requestBody, Consumer<String> onData) {
+		throw new UnsupportedOperationException();
+	}
+
+	/** Quiz JSON with four multiple choice questions, "<prefix> 1?" to "<prefix> 4?". */
+	static String questions(String prefix) {
+		List<Map<String, Object>> questions = new ArrayList<>();
+		for (int i = 1; i <= 4; i++) {
+			questions.add(Map.of("question", prefix + " " + i + "?", "options", List.of("A", "B", "C", "D"), "correctOptionIndex", 0));
+		}
+		return json(Map.of("questions", questions));
+	}
+
+	private static String json(Object value) {
+		try {
+			return objectMapper.writeValueAsString(value);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
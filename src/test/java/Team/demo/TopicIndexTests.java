@@ -0,0 +1,57 @@
+package Team.demo;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class TopicIndexTests {
+
+	private final TopicIndex index = new TopicIndex(true, 0.8, 100, new SimpleMeterRegistry());
+
+	@Test
+	void resolvesSpellingsOfOneTopicToTheFirstSeen() {
+		String id = index.canonicalId("Java Streams");
+		assertEquals("java streams", id);
+		assertEquals(id, index.canonicalId("java stream API"));
+		assertEquals(id, index.canonicalId("Streams in Java 8"));
+		assertEquals(id, index.canonicalId("  JAVA   streams "));
+		assertEquals(1, index.size());
+	}
+
+	@Test
+	void keepsDifferentTopicsApart() {
+		assertNotEquals(index.canonicalId("Java Streams"), index.canonicalId("Java Threads"));
+		assertNotEquals(index.canonicalId("Java"), index.canonicalId("JavaScript"));
+		assertNotEquals(index.canonicalId("Roman History"), index.canonicalId("Greek History"));
+		assertNotEquals(index.canonicalId("Linear Algebra"), index.canonicalId("Abstract Algebra"));
+		assertNotEquals(index.canonicalId("World War 1"), index.canonicalId("World War 2"));
+		assertNotEquals(index.canonicalId("Organic Chemistry"), index.canonicalId("Inorganic chemistry"));
+		assertNotEquals(index.canonicalId("Macroeconomics"), index.canonicalId("Microeconomics"));
+	}
+
+	@Test
+	void prefersRegisteredKeys() {
+		index.register("photosynthesis in plants");
+		assertEquals("photosynthesis in plants", index.canonicalId("Photosynthesis"));
+		assertEquals("photosynthesis in plants", index.canonicalId("plant photosynthesis"));
+	}
+
+	@Test
+	void onlyNormalizesWhenDisabled() {
+		TopicIndex disabled = new TopicIndex(false, 0.8, 100, new SimpleMeterRegistry());
+		assertEquals("java streams", disabled.canonicalId(" Java  Streams"));
+		assertEquals("java stream api", disabled.canonicalId("java stream API"));
+		assertEquals("", disabled.canonicalId(null));
+	}
+
+	@Test
+	void stemsPluralsAndVerbForms() {
+		assertEquals("theory", TopicIndex.stem("theories"));
+		assertEquals("stream", TopicIndex.stem("streams"));
+		assertEquals("learn", TopicIndex.stem("learning"));
+		assertEquals("photosynthesis", TopicIndex.stem("photosynthesis"));
+		assertEquals("class", TopicIndex.stem("class"));
+	}
+}
@@ -0,0 +1,65 @@
+package Team.demo;
+
+import Team.demo.model.QuizResult;
+import Team.demo.model.User;
+import Team.demo.model.UserStats;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(properties = "gemini.api.key=test-key")
+class UserStatsServiceTests {
+
+	@Autowired
+	private UserStatsService userStatsService;
+	@Autowired
+	private UserRepository userRepository;
+
+	@Test
+	void keepsOverallAndPerTopicTotals() {
+		User user = userRepository.save(new User("stats-" + System.nanoTime(), "secret"));
+		userStatsService.saveResult(result(user, "Biology", 3, 5));
+		userStatsService.saveResult(result(user, " biology ", 5, 5));
+		userStatsService.saveResult(result(user, "Chemistry", 1, 10));
+
+		UserStats overall = userStatsService.overall(user.getUsername());
+		assertEquals(3, overall.getQuizzes());
+		assertEquals(20, overall.getQuestions());
+		assertEquals(45.0, overall.getAverageScore(), 0.001);
+
+		List<UserStats> topics = userStatsService.topTopics(user.getUsername(), 5);
+		assertEquals(2, topics.size());
+		assertEquals("biology", topics.get(0).getTopicKey());
+		assertEquals(2, topics.get(0).getQuizzes());
+		assertEquals(80.0, topics.get(0).getAverageScore(), 0.001);
+	}
+
+	@Test
+	void rebuildMatchesIncrementalTotals() {
+		User user = userRepository.save(new User("rebuild-" + System.nanoTime(), "secret"));
+		userStatsService.saveResult(result(user, "History", 2, 4));
+		userStatsService.saveResult(result(user, "Geography", 4, 4));
+		UserStats before = userStatsService.overall(user.getUsername());
+
+		userStatsService.rebuild();
+
+		UserStats after = userStatsService.overall(user.getUsername());
+		assertEquals(before.getQuizzes(), after.getQuizzes());
+		assertEquals(before.getScore(), after.getScore());
+		assertEquals(before.getQuestions(), after.getQuestions());
+		assertEquals(2, userStatsService.topTopics(user.getUsername(), 5).size());
+	}
+
+	private static QuizResult result(User user, String topic, int score, int total) {
+		QuizResult result = new QuizResult();
+		result.setUser(user);
+		result.setTopic(topic);
+		result.setScore(score);
+		result.setTotal(total);
+		return result;
+	}
+}
@@ -0,0 +1,69 @@
+package Team.demo;
+
+import Team.demo.model.User;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.net.URI;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The scrape account only opens the actuator endpoints, and doesn't stand in the way of an
+ * app user who registered under the same name.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+		"gemini.api.key=test-key",
+		"quiz.metrics.scrape.username=scraper",
+		"quiz.metrics.scrape.password=scrape-secret"
+})
+class WebSecurityConfigTests {
+
+	@Autowired
+	private TestRestTemplate restTemplate;
+	@Autowired
+	private UserRepository userRepository;
+	@Autowired
+	private PasswordEncoder passwordEncoder;
+
+	@Test
+	void scrapeAccountOpensOnlyTheActuator() {
+		assertEquals(HttpStatus.OK, restTemplate.withBasicAuth("scraper", "scrape-secret").getForEntity("/actuator/metrics", String.class).getStatusCode());
+		assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.getForEntity("/actuator/metrics", String.class).getStatusCode());
+		assertEquals(HttpStatus.OK, restTemplate.getForEntity("/actuator/health", String.class).getStatusCode());
+		assertEquals("/login?error", login("scraper", "scrape-secret"));
+	}
+
+	@Test
+	void appUserNamedLikeTheScrapeAccountCanSignIn() {
+		if (userRepository.findByUsername("scraper").isEmpty()) {
+			userRepository.save(new User("scraper", passwordEncoder.encode("user-secret")));
+		}
+
+		assertEquals("/", login("scraper", "user-secret"));
+		assertEquals(HttpStatus.UNAUTHORIZED, restTemplate.withBasicAuth("scraper", "user-secret").getForEntity("/actuator/metrics", String.class).getStatusCode());
+	}
+
+	// Signs in through the login form and returns the path it redirects to
+	private String login(String username, String password) {
+		HttpHeaders headers = new HttpHeaders();
+		headers.setContentType(MediaType.APPLICATION_FORM_URLENCODED);
+		MultiValueMap<String, String> form = new LinkedMultiValueMap<>();
+		form.add("username", username);
+		form.add("password", password);
+		ResponseEntity<String> response = restTemplate.postForEntity("/login", new HttpEntity<>(form, headers), String.class);
+		assertEquals(HttpStatus.FOUND, response.getStatusCode());
+		URI location = response.getHeaders().getLocation();
+		return location.getPath() + (location.getQuery() != null ? "?" + location.getQuery() : "");
+	}
+}